@@ -25,4 +25,9 @@ public interface Module {
         this.load();
     }
 
+    /**
+     * Called once, when the plugin is being disabled. Scheduler can no longer be used at this point.
+     */
+    default void shutdown() { /* NOTHING TO DO BY DEFAULT */ }
+
 }
@@ -22,6 +22,7 @@ import cloud.grabsky.configuration.exception.ConfigurationMappingException;
 import cloud.grabsky.configuration.paper.PaperConfigurationMapper;
 import cloud.grabsky.tweaks.command.TweaksCommand;
 import cloud.grabsky.tweaks.configuration.PluginConfig;
+import cloud.grabsky.tweaks.drops.DropRouter;
 import cloud.grabsky.tweaks.enchantments.BaitEnchantment;
 import cloud.grabsky.tweaks.enchantments.GardenerEnchantment;
 import cloud.grabsky.tweaks.enchantments.MagnetEnchantment;
@@ -49,8 +50,10 @@ import cloud.grabsky.tweaks.handlers.ReusableVaultsHandler;
 import cloud.grabsky.tweaks.handlers.SkullDataRecoveryHandler;
 import cloud.grabsky.tweaks.handlers.WeakerPhantomsHandler;
 import cloud.grabsky.tweaks.handlers.WitherSpawnWhitelistHandler;
+import cloud.grabsky.tweaks.hud.HudEngine;
 import cloud.grabsky.tweaks.items.BasketHandler;
 import cloud.grabsky.tweaks.items.ScrollItem;
+import cloud.grabsky.tweaks.utils.ComponentTemplate;
 import com.github.retrooper.packetevents.PacketEvents;
 import com.google.gson.Gson;
 import io.github.retrooper.packetevents.factory.spigot.SpigotPacketEventsBuilder;
@@ -89,6 +92,9 @@ public final class Tweaks extends JavaPlugin implements Listener {
     @Getter(AccessLevel.PUBLIC)
     private BedrockScheduler bedrockScheduler;
 
+    @Getter(AccessLevel.PUBLIC)
+    private DropRouter dropRouter;
+
     private ConfigurationMapper mapper;
     private RootCommandManager commands;
     private List<Module> modules;
@@ -104,8 +110,13 @@ public final class Tweaks extends JavaPlugin implements Listener {
         bedrockScheduler = new BedrockScheduler(this);
         // Updating the main thread executor.
         MAIN_THREAD = Bukkit.getScheduler().getMainThreadExecutor(this);
+        // Creating DropRouter instance and registering it as a listener. Modules register their claimers on load.
+        this.dropRouter = new DropRouter();
+        this.getServer().getPluginManager().registerEvents(dropRouter, this);
         // Creating ConfigurationMapper instance.
         this.mapper = PaperConfigurationMapper.create();
+        // Creating module(s) that commands depend on.
+        final ReusableVaultsHandler reusableVaults = new ReusableVaultsHandler(this);
         // Adding module(s) to a list.
         this.modules = List.of(
                 // Enchantments
@@ -115,9 +126,7 @@ public final class Tweaks extends JavaPlugin implements Listener {
                 new BaitEnchantment(this),
                 new StrideEnchantment(this),
                 // Enhanced Items
-                new CompassHandler(this),
-                new ClockHandler(this),
-                new MapHandler(this),
+                new HudEngine(this, List.of(new CompassHandler(), new ClockHandler(), new MapHandler(this))),
                 // Inventory Rules
                 new BalancedKeepInventoryHandler(this),
                 new InvulnerableKeepInventoryHandler(this),
@@ -130,7 +139,7 @@ public final class Tweaks extends JavaPlugin implements Listener {
                 new EnderPortalFrameHandler(this),
                 new ArmorStandHandler(this),
                 new SkullDataRecoveryHandler(this),
-                new ReusableVaultsHandler(this),
+                reusableVaults,
                 new DamageMultipliersHandler(this),
                 new BreakingMultipliersHandler(this),
                 new ImprovedEndPhantomsHandler(this),
@@ -153,9 +162,17 @@ public final class Tweaks extends JavaPlugin implements Listener {
         this.commands = new RootCommandManager(this);
         // Registering command(s).
         commands.registerDependency(Tweaks.class, this);
+        commands.registerDependency(ReusableVaultsHandler.class, reusableVaults);
         commands.registerCommand(TweaksCommand.class);
     }
 
+    @Override
+    public void onDisable() {
+        // Shutting down module(s). List can be null in case plugin failed to enable.
+        if (this.modules != null)
+            this.modules.forEach(Module::shutdown);
+    }
+
     @Override
     public void onLoad() {
         PacketEvents.setAPI(SpigotPacketEventsBuilder.build(this));
@@ -171,6 +188,8 @@ public final class Tweaks extends JavaPlugin implements Listener {
             mapper.map(
                     ConfigurationHolder.of(PluginConfig.class, config)
             );
+            // Invalidating parsed templates, as their source strings may have changed.
+            ComponentTemplate.invalidateAll();
             // Reloading module(s).
             this.modules.forEach(Module::reload);
             // Returning true, as everything seemed to reload properly.
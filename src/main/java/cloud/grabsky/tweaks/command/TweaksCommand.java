@@ -23,9 +23,22 @@ import cloud.grabsky.commands.annotation.Dependency;
 import cloud.grabsky.commands.component.CompletionsProvider;
 import cloud.grabsky.commands.exception.CommandLogicException;
 import cloud.grabsky.tweaks.Tweaks;
+import cloud.grabsky.tweaks.configuration.PluginConfig;
+import cloud.grabsky.tweaks.handlers.ReusableVaultsHandler;
+import cloud.grabsky.tweaks.vaults.VaultScan;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.UnknownNullability;
 
 @Command(name = "tweaks", permission = "tweaks.command.tweaks", usage = "/tweaks (...)")
@@ -34,12 +47,31 @@ public final class TweaksCommand extends RootCommand {
     @Dependency
     private @UnknownNullability Tweaks plugin;
 
+    @Dependency
+    private @UnknownNullability ReusableVaultsHandler reusableVaults;
+
+    private static final String USAGE = "<dark_gray>› <gray>Usage: <gold>/tweaks (reload | vaults)";
+    private static final String VAULTS_USAGE = "<dark_gray>› <gray>Usage: <gold>/tweaks vaults (scan | reset | stats) (world) [radius]";
+
     @Override
     public @NotNull CompletionsProvider onTabComplete(@NotNull final RootCommandContext context, final int index) throws CommandLogicException {
         final CommandSender sender = context.getExecutor().asCommandSender();
         // Returning list of sub-commands when no argument was specified in the input.
-        if (index == 0 && sender.hasPermission(this.getPermission() + ".reload") == true)
-            return CompletionsProvider.of("reload");
+        if (index == 0) {
+            final List<String> literals = new ArrayList<>(2);
+            if (sender.hasPermission(this.getPermission() + ".reload") == true)
+                literals.add("reload");
+            if (sender.hasPermission(this.getPermission() + ".vaults") == true)
+                literals.add("vaults");
+            return CompletionsProvider.of(literals.toArray(String[]::new));
+        }
+        // Returning completions of "/tweaks vaults" arguments. Only sub-command that accepts arguments.
+        if (sender.hasPermission(this.getPermission() + ".vaults") == true) {
+            if (index == 1)
+                return CompletionsProvider.of("scan", "reset", "stats");
+            if (index == 2)
+                return CompletionsProvider.of(Bukkit.getWorlds().stream().map(World::getName).toArray(String[]::new));
+        }
         // Returning empty completions provider when missing permission for that literal.
         return CompletionsProvider.EMPTY;
     }
@@ -50,7 +82,7 @@ public final class TweaksCommand extends RootCommand {
         final CommandSender sender = context.getExecutor().asCommandSender();
         // Showing usage when no argument has been provided.
         if (arguments.hasNext() == false) {
-            Message.of("<dark_gray>› <gray>Usage: <gold>/tweaks reload").send(sender);
+            Message.of(USAGE).send(sender);
             return;
         }
         // Getting first argument as String.
@@ -65,9 +97,89 @@ public final class TweaksCommand extends RootCommand {
             }
             // Sending error message to the sender.
             Message.of("<dark_gray>› <red>Insufficient permissions.").send(sender);
+        // Handling "/tweaks vaults" command...
+        } else if (argument.equalsIgnoreCase("vaults") == true) {
+            if (sender.hasPermission(this.getPermission() + ".vaults") == true) {
+                onVaultsCommand(sender, arguments);
+                return;
+            }
+            // Sending error message to the sender.
+            Message.of("<dark_gray>› <red>Insufficient permissions.").send(sender);
             // Showing usage when invalid/unexpected argument has been provided.
         } else {
-            Message.of("<dark_gray>› <gray>Usage: <gold>/tweaks reload").send(sender);
+            Message.of(USAGE).send(sender);
         }
     }
+
+    // Handles "/tweaks vaults (scan | reset | stats) (world) [radius]" command.
+    private void onVaultsCommand(final @NotNull CommandSender sender, final @NotNull ArgumentQueue arguments) throws CommandLogicException {
+        // Showing usage when mode or world has not been provided.
+        if (arguments.hasNext() == false) {
+            Message.of(VAULTS_USAGE).send(sender);
+            return;
+        }
+        final @Nullable VaultScan.Mode mode = parseMode(arguments.next(String.class).asRequired());
+        final @Nullable World world = (arguments.hasNext() == true) ? Bukkit.getWorld(arguments.next(String.class).asRequired()) : null;
+        // Showing usage when mode or world is invalid.
+        if (mode == null || world == null) {
+            Message.of(VAULTS_USAGE).send(sender);
+            return;
+        }
+        // Parsing optional radius. Whole world is scanned when radius is not specified.
+        final boolean hasRadius = arguments.hasNext();
+        final @Nullable Integer radius = (hasRadius == true) ? parseRadius(arguments.next(String.class).asRequired()) : null;
+        // Showing usage when radius has been provided but is invalid, or exceeds configured limit.
+        if (hasRadius == true && (radius == null || radius > PluginConfig.VAULTS_SETTINGS_MAX_SCAN_RADIUS)) {
+            Message.of(VAULTS_USAGE).send(sender);
+            Message.of("<dark_gray>› <gray>Radius must be a number between <gold>0<gray> and <gold>" + PluginConfig.VAULTS_SETTINGS_MAX_SCAN_RADIUS + "<gray>.").send(sender);
+            return;
+        }
+        // Refusing to start another scan while one is still running.
+        if (VaultScan.isRunning() == true) {
+            Message.of("<dark_gray>› <red>Another vault scan is already in progress.").send(sender);
+            return;
+        }
+        // Scanning around the sender if they're in that world, and around world spawn otherwise.
+        final @Nullable Location center = (radius == null) ? null : (sender instanceof Player player && player.getWorld().equals(world) == true) ? player.getLocation() : world.getSpawnLocation();
+        // Starting the scan.
+        Message.of("<dark_gray>› <gray>Scanning vaults in <gold>" + world.getName() + "<gray>" + ((radius != null) ? " within <gold>" + radius + "<gray> blocks" : "") + "... This may take a while.").send(sender);
+        new VaultScan(plugin, reusableVaults, world, center, (radius != null) ? radius : 0, mode).start().whenComplete((result, thrown) -> {
+            // Sending error message to the sender in case the world is too large to be scanned at once.
+            if (thrown instanceof VaultScan.TooManyChunksException) {
+                Message.of("<dark_gray>› <red>World has more than <gold>" + PluginConfig.VAULTS_SETTINGS_MAX_SCAN_CHUNKS + "<red> generated chunks. Specify a radius to scan it.").send(sender);
+                return;
+            }
+            // Sending error message to the sender, and logging the error.
+            if (thrown != null) {
+                plugin.getLogger().log(Level.SEVERE, "An error occurred while scanning vaults.", thrown);
+                Message.of("<dark_gray>› <red>An error occurred while scanning vaults. See console for more details.").send(sender);
+                return;
+            }
+            // Sending totals to the sender.
+            Message.of("<dark_gray>› <gray>" + ((mode == VaultScan.Mode.RESET) ? "Reset" : "Found") + " <gold>" + result.vaults() + "<gray> vaults in <gold>" + result.chunks() + "<gray> chunks. <gold>" + result.vaultsWithData() + "<gray> of them had <gold>" + result.bytes() + "<gray> bytes of unlock data.").send(sender);
+            // Unlock data is not decoded in scan mode, so there are no players or cooldowns to show.
+            if (mode != VaultScan.Mode.SCAN)
+                Message.of("<dark_gray>› <gray>Unlock data covers <gold>" + result.uniquePlayers() + "<gray> unique players, with <gold>" + result.activeCooldowns() + "<gray> cooldowns " + ((mode == VaultScan.Mode.RESET) ? "cleared" : "still active") + ".").send(sender);
+        });
+    }
+
+    /* HELPER METHODS */
+
+    private static @Nullable VaultScan.Mode parseMode(final @NotNull String value) {
+        try {
+            return VaultScan.Mode.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (final IllegalArgumentException _) {
+            return null;
+        }
+    }
+
+    private static @Nullable Integer parseRadius(final @NotNull String value) {
+        try {
+            final int radius = Integer.parseInt(value);
+            return (radius >= 0) ? radius : null;
+        } catch (final NumberFormatException _) {
+            return null;
+        }
+    }
+
 }
@@ -166,6 +166,47 @@ public final class PluginConfig implements JsonConfiguration {
     @JsonPath("map_settings.bossbar")
     public static BossBarProperties MAP_SETTINGS_BOSSBAR;
 
+    // Magnet Settings
+
+    @JsonPath("magnet_settings.additional_minerals")
+    public static List<Material> MAGNET_SETTINGS_ADDITIONAL_MINERALS;
+
+    @JsonPath("magnet_settings.additional_crops")
+    public static List<Material> MAGNET_SETTINGS_ADDITIONAL_CROPS;
+
+    @JsonPath("magnet_settings.direct_experience")
+    public static boolean MAGNET_SETTINGS_DIRECT_EXPERIENCE;
+
+    @JsonPath("magnet_settings.max_column_height")
+    public static int MAGNET_SETTINGS_MAX_COLUMN_HEIGHT;
+
+    @JsonPath("magnet_settings.show_animation_to_nearby_players")
+    public static boolean MAGNET_SETTINGS_SHOW_ANIMATION_TO_NEARBY_PLAYERS;
+
+    @JsonPath("magnet_settings.animation_radius")
+    public static double MAGNET_SETTINGS_ANIMATION_RADIUS;
+
+    @JsonPath("magnet_settings.auto_smelt")
+    public static boolean MAGNET_SETTINGS_AUTO_SMELT;
+
+    @JsonPath("magnet_settings.auto_compact")
+    public static boolean MAGNET_SETTINGS_AUTO_COMPACT;
+
+    @JsonPath("magnet_settings.vein_mining.enabled")
+    public static boolean MAGNET_SETTINGS_VEIN_MINING_ENABLED;
+
+    @JsonPath("magnet_settings.vein_mining.require_sneaking")
+    public static boolean MAGNET_SETTINGS_VEIN_MINING_REQUIRE_SNEAKING;
+
+    @JsonPath("magnet_settings.vein_mining.max_blocks")
+    public static int MAGNET_SETTINGS_VEIN_MINING_MAX_BLOCKS;
+
+    @JsonPath("magnet_settings.vein_mining.max_radius")
+    public static int MAGNET_SETTINGS_VEIN_MINING_MAX_RADIUS;
+
+    @JsonPath("magnet_settings.vein_mining.blocks_per_tick")
+    public static int MAGNET_SETTINGS_VEIN_MINING_BLOCKS_PER_TICK;
+
     // Damage Multiplier Settings
 
     @JsonPath("damage_multiplier_settings.outgoing")
@@ -213,6 +254,15 @@ public final class PluginConfig implements JsonConfiguration {
     @JsonPath("vaults_settings.cooldowns")
     public static Map<String, Long> VAULTS_SETTINGS_COOLDOWNS;
 
+    @JsonPath("vaults_settings.save_interval")
+    public static long VAULTS_SETTINGS_SAVE_INTERVAL;
+
+    @JsonPath("vaults_settings.max_scan_radius")
+    public static int VAULTS_SETTINGS_MAX_SCAN_RADIUS;
+
+    @JsonPath("vaults_settings.max_scan_chunks")
+    public static int VAULTS_SETTINGS_MAX_SCAN_CHUNKS;
+
     // Teleportation Settings
 
     @JsonPath("teleportation_settings.delay")
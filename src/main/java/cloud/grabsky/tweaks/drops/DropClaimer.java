@@ -0,0 +1,47 @@
+/*
+ * Tweaks (https://github.com/Grabsky/Tweaks)
+ *
+ * Copyright (C) 2024  Grabsky <michal.czopek.foss@proton.me>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License v3 as published by
+ * the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License v3 for more details.
+ */
+package cloud.grabsky.tweaks.drops;
+
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.inventory.ItemStack;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Claims drops of dying entities. Claimers are registered to the {@link DropRouter} and are offered drops in order of registration.
+ */
+public interface DropClaimer {
+
+    /**
+     * Called once per {@link EntityDeathEvent}. Returns {@link Claim} which will be offered drops of the event, or {@code null} if this claimer is not interested.
+     */
+    @Nullable Claim open(final @NotNull EntityDeathEvent event);
+
+    interface Claim {
+
+        /**
+         * Claims as much of specified item as possible and returns the claimed amount. Specified item must not be modified nor stored, it should be copied instead.
+         */
+        int claim(final @NotNull ItemStack item);
+
+        /**
+         * Called after all drops of the event have been offered.
+         */
+        default void close() { /* NOTHING TO CLOSE BY DEFAULT */ }
+
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Tweaks (https://github.com/Grabsky/Tweaks)
+ *
+ * Copyright (C) 2024  Grabsky <michal.czopek.foss@proton.me>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License v3 as published by
+ * the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License v3 for more details.
+ */
+package cloud.grabsky.tweaks.drops;
+
+import cloud.grabsky.tweaks.drops.DropClaimer.Claim;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Routes drops of dying entities to registered {@link DropClaimer DropClaimers}. Drops are partitioned in place, in a single pass:
+ * claimed parts are removed, and whatever is left stays in the event to be dropped the vanilla way. Accessed only on the main thread.
+ */
+public final class DropRouter implements Listener {
+
+    private final List<DropClaimer> claimers = new ArrayList<>();
+
+    /**
+     * Registers specified claimer, unless it's already registered.
+     */
+    public void register(final @NotNull DropClaimer claimer) {
+        if (claimers.contains(claimer) == false)
+            claimers.add(claimer);
+    }
+
+    /**
+     * Unregisters specified claimer.
+     */
+    public void unregister(final @NotNull DropClaimer claimer) {
+        claimers.remove(claimer);
+    }
+
+    @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+    public void onEntityDeath(final @NotNull EntityDeathEvent event) {
+        // Returning in case there are no claimers.
+        if (claimers.isEmpty() == true)
+            return;
+        // Opening claims for this event.
+        final List<Claim> claims = new ArrayList<>(claimers.size());
+        for (final DropClaimer claimer : claimers) {
+            final @Nullable Claim claim = claimer.open(event);
+            if (claim != null)
+                claims.add(claim);
+        }
+        // Returning in case nobody is interested in drops of this event.
+        if (claims.isEmpty() == true)
+            return;
+        final List<ItemStack> drops = event.getDrops();
+        // Offering drops to claims and moving whatever is left to the front of the list.
+        int write = 0;
+        for (int read = 0; read < drops.size(); read++) {
+            final ItemStack drop = drops.get(read);
+            // Offering the drop to each claim, until it's fully claimed.
+            for (final Claim claim : claims) {
+                if (drop.isEmpty() == true)
+                    break;
+                final int claimed = claim.claim(drop);
+                // Removing the claimed part.
+                if (claimed > 0)
+                    drop.setAmount(drop.getAmount() - claimed);
+            }
+            // Keeping the part that was not claimed.
+            if (drop.isEmpty() == false)
+                drops.set(write++, drop);
+        }
+        // Removing claimed drops from the end of the list.
+        if (write < drops.size())
+            drops.subList(write, drops.size()).clear();
+        // Closing claims.
+        claims.forEach(Claim::close);
+    }
+
+}
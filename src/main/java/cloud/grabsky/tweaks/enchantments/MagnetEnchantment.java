@@ -17,9 +17,15 @@ package cloud.grabsky.tweaks.enchantments;
 import cloud.grabsky.tweaks.Module;
 import cloud.grabsky.tweaks.Tweaks;
 import cloud.grabsky.tweaks.configuration.PluginConfig;
+import cloud.grabsky.tweaks.drops.DropClaimer;
 import cloud.grabsky.tweaks.utils.Extensions;
+import cloud.grabsky.tweaks.utils.FakeEntityAllocator;
+import cloud.grabsky.tweaks.utils.InventoryFitPlanner;
+import cloud.grabsky.tweaks.utils.MaterialSet;
+import cloud.grabsky.tweaks.utils.VeinFinder;
 import com.destroystokyo.paper.MaterialSetTag;
 import com.destroystokyo.paper.MaterialTags;
+import com.destroystokyo.paper.event.server.ServerTickEndEvent;
 import com.github.retrooper.packetevents.PacketEvents;
 import com.github.retrooper.packetevents.protocol.entity.data.EntityData;
 import com.github.retrooper.packetevents.protocol.entity.data.EntityDataTypes;
@@ -29,14 +35,16 @@ import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerCo
 import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerEntityMetadata;
 import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerSpawnEntity;
 import io.github.retrooper.packetevents.util.SpigotConversionUtil;
-import org.bukkit.Bukkit;
+import net.kyori.adventure.key.Key;
+import net.kyori.adventure.sound.Sound;
 import org.bukkit.Effect;
 import org.bukkit.GameMode;
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
+import org.bukkit.World;
 import org.bukkit.block.Block;
-import org.bukkit.block.BlockFace;
 import org.bukkit.block.BlockState;
+import org.bukkit.block.data.BlockData;
 import org.bukkit.entity.ExperienceOrb;
 import org.bukkit.entity.Mob;
 import org.bukkit.entity.Player;
@@ -48,14 +56,26 @@ import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.BlockDropItemEvent;
 import org.bukkit.event.entity.CreatureSpawnEvent;
 import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.player.PlayerExpChangeEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.FurnaceRecipe;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.ItemType;
+import org.bukkit.inventory.RecipeChoice;
+import org.bukkit.inventory.ShapedRecipe;
+import org.bukkit.inventory.ShapelessRecipe;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import lombok.AccessLevel;
 import lombok.Getter;
@@ -65,7 +85,7 @@ import lombok.experimental.ExtensionMethod;
 @ExtensionMethod(Extensions.class)
 @SuppressWarnings("UnstableApiUsage")
 @RequiredArgsConstructor(access = AccessLevel.PUBLIC)
-public final class MagnetEnchantment implements Module, Listener {
+public final class MagnetEnchantment implements Module, Listener, DropClaimer {
 
     @Getter(AccessLevel.PUBLIC)
     public @NotNull Tweaks plugin;
@@ -121,17 +141,70 @@ public final class MagnetEnchantment implements Module, Listener {
             .add(Material.NETHERITE_SCRAP)
             .lock();
 
+    // Tools handled by the MAGNET enchantment. Compiled to bitsets, as these are checked for every block and every drop.
+    private static final MaterialSet PICKAXES = MaterialSet.of(MaterialTags.PICKAXES.getValues());
+    private static final MaterialSet HOES = MaterialSet.of(MaterialTags.HOES.getValues());
+    private static final MaterialSet SWORDS = MaterialSet.of(MaterialTags.SWORDS.getValues());
+
+    // Compiled on each reload from the tags above and materials added in the configuration.
+    private @NotNull MaterialSet supportedCrops = MaterialSet.EMPTY;
+    private @NotNull MaterialSet supportedMinerals = MaterialSet.EMPTY;
+
+    // Smelting and compacting results, indexed by Material#ordinal of the input. Built on each reload from the server's recipes.
+    private ItemStack[] smeltingTable = new ItemStack[0];
+    private ItemStack[] compactingTable = new ItemStack[0];
+
+    // Holds experience to be credited to each player at the end of current tick. Accessed only on the main thread.
+    private final Map<UUID, Integer> pendingExperience = new HashMap<>();
+
+    // Holds pickups of each player planned during current tick. These are written and animated at the end of the tick. Accessed only on the main thread.
+    private final Map<UUID, PickupBatch> pendingPickups = new HashMap<>();
+
+    // Holds vein mining jobs of each player. Accessed only on the main thread.
+    private final Map<UUID, VeinJob> veins = new HashMap<>();
+
+    // Set while blocks of a vein are being broken, so these don't start another vein.
+    private boolean isBreakingVein = false;
+
+    // Allocates identities of items spawned for pickup animations. Created on first load with module enabled, as it reserves entity ids from the server.
+    private @Nullable FakeEntityAllocator fakeEntities = null;
+
+    // Number of entity ids to reserve for pickup animations. Animation takes a few ticks, so ids can be safely re-used after that.
+    private static final int FAKE_ENTITY_IDS = 1024;
+
+    private static final Key EXPERIENCE_ORB_PICKUP_SOUND = Key.key("minecraft", "entity.experience_orb.pickup");
+
     @Override
     public void load() {
-        if (PluginConfig.ENABLED_MODULES_MAGNET_ENCHANTMENT == true)
+        // Compiling supported blocks and drops.
+        this.supportedCrops = MaterialSet.of(SUPPORTED_CROPS.getValues(), PluginConfig.MAGNET_SETTINGS_ADDITIONAL_CROPS);
+        this.supportedMinerals = MaterialSet.of(SUPPORTED_MINERALS.getValues(), PluginConfig.MAGNET_SETTINGS_ADDITIONAL_MINERALS);
+        // Building smelting and compacting tables.
+        this.smeltingTable = (PluginConfig.MAGNET_SETTINGS_AUTO_SMELT == true) ? buildSmeltingTable() : new ItemStack[0];
+        this.compactingTable = (PluginConfig.MAGNET_SETTINGS_AUTO_COMPACT == true) ? buildCompactingTable() : new ItemStack[0];
+        // ...
+        if (PluginConfig.ENABLED_MODULES_MAGNET_ENCHANTMENT == true) {
+            // Reserving entity ids for pickup animations. Reserved only once, when module is enabled for the first time.
+            if (fakeEntities == null)
+                this.fakeEntities = new FakeEntityAllocator(FAKE_ENTITY_IDS);
             // Registering events.
             plugin.getServer().getPluginManager().registerEvents(this, plugin);
+            // Registering as a claimer of mob drops.
+            plugin.getDropRouter().register(this);
+        }
     }
 
     @Override
     public void unload() {
         // Unregistering events.
         HandlerList.unregisterAll(this);
+        // Unregistering from claimers of mob drops.
+        plugin.getDropRouter().unregister(this);
+        // Stopping vein mining jobs. These are stopped before breaking next batch of blocks.
+        veins.clear();
+        // Crediting experience and writing pickups that are still pending.
+        flushExperience();
+        flushPickups();
     }
 
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
@@ -143,20 +216,21 @@ public final class MagnetEnchantment implements Module, Listener {
             // Checking if player's tool is enchanted with Magnet enchantment.
             if (tool.isEnchantedWith("firedot:magnet") == true) {
                 final Block block = event.getBlock();
-                // Returning if pickaxe enchanted with magnet destroyed non-ore block.
-                if (MaterialTags.PICKAXES.isTagged(tool) == true && SUPPORTED_MINERALS.isTagged(block) == false)
-                    return;
-                // Returning if hoe enchanted with magnet destroyed non-crop block.
-                if (MaterialTags.HOES.isTagged(tool) == true && SUPPORTED_CROPS.isTagged(block) == false)
+                final ToolKind kind = ToolKind.of(tool.getType());
+                // Returning if pickaxe enchanted with magnet destroyed non-ore block, or hoe enchanted with magnet destroyed non-crop block.
+                if (isSupported(kind, block.getType()) == false)
                     return;
                 // Getting the experience player would get from destroying this block.
                 final int experience = event.getExpToDrop();
                 // Disabling vanilla drop of experience, will be added to the player in the next step.
                 event.setExpToDrop(0);
-                // Dropping experience directly at the player's location to make them pick it up instantly.
-                if (experience != 0) player.getWorld().spawn(player.getLocation(), ExperienceOrb.class, CreatureSpawnEvent.SpawnReason.NATURAL, (orb) -> {
-                    orb.setExperience(experience);
-                });
+                // Giving experience directly to the player.
+                if (experience != 0)
+                    giveExperience(player, experience);
+                // Starting vein mining in case it's enabled. Blocks broken as a part of the vein cannot start another one.
+                if (kind == ToolKind.PICKAXE && PluginConfig.MAGNET_SETTINGS_VEIN_MINING_ENABLED == true && isBreakingVein == false && veins.containsKey(player.getUniqueId()) == false)
+                    if (PluginConfig.MAGNET_SETTINGS_VEIN_MINING_REQUIRE_SNEAKING == false || player.isSneaking() == true)
+                        startVein(player, block);
             }
         }
     }
@@ -171,138 +245,548 @@ public final class MagnetEnchantment implements Module, Listener {
             if (tool.isEnchantedWith("firedot:magnet") == true) {
                 // Getting the BlockState associated with the event.
                 final BlockState blockState = event.getBlockState();
-                // Returning if pickaxe enchanted with magnet destroyed non-ore block.
-                if (MaterialTags.PICKAXES.isTagged(tool) == true && SUPPORTED_MINERALS.isTagged(blockState) == false)
-                    return;
-                // Returning if hoe enchanted with magnet destroyed non-crop block.
-                if (MaterialTags.HOES.isTagged(tool) == true && SUPPORTED_CROPS.isTagged(blockState) == false)
+                // Working out the tool kind once for the whole event.
+                final ToolKind kind = ToolKind.of(tool.getType());
+                // Returning if pickaxe enchanted with magnet destroyed non-ore block, or hoe enchanted with magnet destroyed non-crop block.
+                if (isSupported(kind, blockState.getType()) == false)
                     return;
+                // Getting pickups of this player planned during current tick. These are written and animated at the end of the tick.
+                final PickupBatch batch = getPickupBatch(player);
+                // Location at which pickup animation will start.
+                final Location location = new Location(blockState.getX() + 0.5D, blockState.getY() + 0.5D, blockState.getZ() + 0.5D, 0F, 0F);
                 // ...
-                if (blockState.getType() == Material.SUGAR_CANE || blockState.getType() == Material.BAMBOO || blockState.getType() == Material.CACTUS) {
-                    // Iterating over blocks above the broken block.
-                    Block relative = blockState.getWorld().getBlockAt(blockState.getX(), blockState.getY() + 1, blockState.getZ());
-                    // ...
-                    while (relative.getType() == blockState.getType()) {
-                        // Iterating over drops and adding them to the player's inventory.
-                        relative.getDrops(tool, player).forEach(item -> {
-                            // Adding drops directly to the player's inventory.
-                            player.getInventory().addItem(item);
-                            // Creating next entity identifier for use with packets.
-                            final int id = Bukkit.getUnsafe().nextEntityId();
-                            // Scheduling packet stuff asynchronously.
-                            plugin.getBedrockScheduler().runAsync(1L, (_) -> {
-                                final Location location = new Location(event.getBlockState().getX() + 0.5D, event.getBlockState().getY() + 0.5D, event.getBlockState().getZ() + 0.5D, 0F, 0F);
-                                // Creating PlayServerSpawnEntity packet.
-                                final var PlayServerSpawnEntityPacket = new WrapperPlayServerSpawnEntity(id, UUID.randomUUID(), EntityTypes.ITEM, location, 0, 0, null);
-                                // Creating PlayServerEntityMetadata packet.
-                                final var PlayServerEntityMetadataPacket = new WrapperPlayServerEntityMetadata(id, List.of(new EntityData(8, EntityDataTypes.ITEMSTACK, SpigotConversionUtil.fromBukkitItemStack(item))));
-                                // Creating PlayServerCollectItem packet.
-                                final var PlayServerCollectItemPacket = new WrapperPlayServerCollectItem(id, player.getEntityId(), item.getAmount());
-                                // Sending packets...
-                                PacketEvents.getAPI().getPlayerManager().sendPacket(player, PlayServerSpawnEntityPacket);
-                                PacketEvents.getAPI().getPlayerManager().sendPacket(player, PlayServerEntityMetadataPacket);
-                                PacketEvents.getAPI().getPlayerManager().sendPacket(player, PlayServerCollectItemPacket);
-                            });
-                        });
-                        // Playing the block break effect.
-                        relative.getWorld().playEffect(relative.getLocation(), Effect.STEP_SOUND, relative.getBlockData());
-                        // Removing the block from the world.
-                        relative.setType(Material.AIR);
-                        // Updating the relative block.
-                        relative = relative.getRelative(BlockFace.UP);
-                    }
-                }
+                if (blockState.getType() == Material.SUGAR_CANE || blockState.getType() == Material.BAMBOO || blockState.getType() == Material.CACTUS)
+                    harvestColumn(player, tool, blockState, batch, location);
                 // Removing items...
                 event.getItems().removeIf(item -> {
-                    // Skipping items that are not supported by the pickaxe.
-                    if (MaterialTags.PICKAXES.isTagged(tool) == true && SUPPORTED_MINERALS.isTagged(item.getItemStack()) == false)
+                    final ItemStack stack = item.getItemStack();
+                    // Skipping items that are not supported by the tool.
+                    if (isSupported(kind, stack.getType()) == false)
+                        return false;
+                    // Planning pickup of the item.
+                    final int fitted = batch.pickup(stack, location);
+                    // Skipping items that does not fit at all.
+                    if (fitted == 0)
                         return false;
-                    // Skipping items that are not supported by the hoe.
-                    if (MaterialTags.HOES.isTagged(tool) == true && SUPPORTED_CROPS.isTagged(item.getItemStack()) == false)
+                    // Leaving the part that does not fit for the vanilla drop.
+                    if (fitted < stack.getAmount()) {
+                        item.setItemStack(stack.asQuantity(stack.getAmount() - fitted));
                         return false;
-                    // Checking if player has space for an item.
-                    if (player.getInventory().hasSpace(item.getItemStack()) == true) {
-                        // Adding drops directly to the player's inventory.
-                        player.getInventory().addItem(item.getItemStack());
-                        // Creating next entity identifier for use with packets.
-                        final int id = Bukkit.getUnsafe().nextEntityId();
-                        // Scheduling packet stuff asynchronously.
-                        plugin.getBedrockScheduler().runAsync(1L, (_) -> {
-                            final Location location = new Location(event.getBlockState().getX() + 0.5D, event.getBlockState().getY() + 0.5D, event.getBlockState().getZ() + 0.5D, 0F, 0F);
-                            // Creating PlayServerSpawnEntity packet.
-                            final var PlayServerSpawnEntityPacket = new WrapperPlayServerSpawnEntity(id, UUID.randomUUID(), EntityTypes.ITEM, location, 0, 0, null);
-                            // Creating PlayServerEntityMetadata packet.
-                            final var PlayServerEntityMetadataPacket = new WrapperPlayServerEntityMetadata(id, List.of(new EntityData(8, EntityDataTypes.ITEMSTACK, SpigotConversionUtil.fromBukkitItemStack(item.getItemStack()))));
-                            // Creating PlayServerCollectItem packet.
-                            final var PlayServerCollectItemPacket = new WrapperPlayServerCollectItem(id, player.getEntityId(), item.getItemStack().getAmount());
-                            // Sending packets...
-                            PacketEvents.getAPI().getPlayerManager().sendPacket(player, PlayServerSpawnEntityPacket);
-                            PacketEvents.getAPI().getPlayerManager().sendPacket(player, PlayServerEntityMetadataPacket);
-                            PacketEvents.getAPI().getPlayerManager().sendPacket(player, PlayServerCollectItemPacket);
-                        });
-                        // Returning true, which will cause the item to be removed from the list.
-                        return true;
                     }
-                    // Returning false, which will cause the item to not be removed.
-                    return false;
+                    // Returning true, which will cause the item to be removed from the list.
+                    return true;
                 });
             }
         }
     }
 
-    @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
-    public void onEntityDeath(final @NotNull EntityDeathEvent event) {
+    @Override // Called by the DropRouter once per EntityDeathEvent. Drops are offered to the returned claim and removed from the event as they're claimed.
+    public @Nullable Claim open(final @NotNull EntityDeathEvent event) {
         if (event.getDamageSource().getCausingEntity() instanceof Player player && event.getEntity() instanceof Mob mob) {
             // Returning in case player is no longer online. Not sure if needed, just in case.
             if (player.isOnline() == false || player.isConnected() == false)
-                return;
+                return null;
             // Getting the tool in player's hand.
             final ItemStack tool = player.getInventory().getItemInMainHand();
             // Checking if player's tool is enchanted with Magnet enchantment.
             if (tool.isEnchantedWith("firedot:magnet") == true) {
-                if (MaterialTags.SWORDS.isTagged(tool) == false && tool.getType().asItemType() != ItemType.BOW && tool.getType().asItemType() != ItemType.CROSSBOW)
-                    return;
+                final ToolKind kind = ToolKind.of(tool.getType());
+                // Returning if tool is not a sword, bow or crossbow.
+                if (kind != ToolKind.SWORD && kind != ToolKind.BOW)
+                    return null;
+                // Getting location of the mob once for all drops.
+                final org.bukkit.Location mobLocation = mob.getLocation();
                 // Returning for distances greater than 24 blocks. (Bow / Crossbow) (24x24 = 576)
-                if (player.getLocation().distanceSquared(event.getEntity().getLocation()) > 576)
-                    return;
+                if (mobLocation.getWorld() != player.getWorld() || player.getLocation().distanceSquared(mobLocation) > 576)
+                    return null;
                 // Getting the experience player would get from destroying this block.
                 final int experience = event.getDroppedExp();
                 // Disabling vanilla drop of experience, will be added to the player in the next step.
                 event.setDroppedExp(0);
-                // Dropping experience directly at the player's location to make them pick it up instantly.
+                // Giving experience directly to the player.
                 if (experience != 0)
-                    player.getWorld().spawn(player.getLocation(), ExperienceOrb.class, CreatureSpawnEvent.SpawnReason.NATURAL, (orb) -> {
-                        orb.setExperience(experience);
-                    });
-                final List<ItemStack> drops = new ArrayList<>(event.getDrops());
-                // Getting drops; Ores drop only one ItemStack, so we can safely get the first element from the Collection
-                drops.forEach(drop -> {
-                    // Checking if player has space for an item
-                    if (player.getInventory().hasSpace(drop) == true) {
-                        // Setting drops to false as player has enough space for an item
-                        event.getDrops().remove(drop);
-                        // Adding drops directly to the player's inventory.
-                        player.getInventory().addItem(drop);
-                        // Creating next entity identifier for use with packets.
-                        final int id = Bukkit.getUnsafe().nextEntityId();
-                        // Scheduling packet stuff asynchronously.
-                        plugin.getBedrockScheduler().runAsync(1L, (_) -> {
-                            final Location location = new Location(mob.getLocation().getX() + 0.5D, mob.getLocation().getY() + 0.5D, mob.getLocation().getZ() + 0.5D, 0F, 0F);
-                            // Creating PlayServerSpawnEntity packet.
-                            final var PlayServerSpawnEntityPacket = new WrapperPlayServerSpawnEntity(id, UUID.randomUUID(), EntityTypes.ITEM, location, 0, 0, null);
-                            // Creating PlayServerEntityMetadata packet.
-                            final var PlayServerEntityMetadataPacket = new WrapperPlayServerEntityMetadata(id, List.of(new EntityData(8, EntityDataTypes.ITEMSTACK, SpigotConversionUtil.fromBukkitItemStack(drop))));
-                            // Creating PlayServerCollectItem packet.
-                            final var PlayServerCollectItemPacket = new WrapperPlayServerCollectItem(id, player.getEntityId(), drop.getAmount());
-                            // Sending packets...
-                            PacketEvents.getAPI().getPlayerManager().sendPacket(player, PlayServerSpawnEntityPacket);
-                            PacketEvents.getAPI().getPlayerManager().sendPacket(player, PlayServerEntityMetadataPacket);
-                            PacketEvents.getAPI().getPlayerManager().sendPacket(player, PlayServerCollectItemPacket);
-                        });
-                    }
+                    giveExperience(player, experience);
+                // Getting pickups of this player planned during current tick. These are written and animated at the end of the tick.
+                final PickupBatch batch = getPickupBatch(player);
+                // Location at which pickup animation will start.
+                final Location location = new Location(mobLocation.getX() + 0.5D, mobLocation.getY() + 0.5D, mobLocation.getZ() + 0.5D, 0F, 0F);
+                // Claiming drops that fit into player's inventory. Parts that does not fit are left for the vanilla drop.
+                return (drop) -> batch.pickup(drop, location);
+            }
+        }
+        return null;
+    }
+
+    @EventHandler
+    public void onServerTickEnd(final @NotNull ServerTickEndEvent event) {
+        flushExperience();
+        flushPickups();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR) // Crediting experience and writing pickups of leaving player right away, as player data is saved before the tick ends.
+    public void onPlayerQuit(final @NotNull PlayerQuitEvent event) {
+        final @Nullable Integer experience = pendingExperience.remove(event.getPlayer().getUniqueId());
+        // Crediting experience collected during this tick.
+        if (experience != null)
+            flushExperience(event.getPlayer(), experience);
+        final @Nullable PickupBatch batch = pendingPickups.remove(event.getPlayer().getUniqueId());
+        // Writing pickups to player's inventory.
+        if (batch != null)
+            flushPickups(batch);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR) // Handling pickups of dying player right away, as the inventory is dropped before the tick ends.
+    public void onPlayerDeath(final @NotNull PlayerDeathEvent event) {
+        final @Nullable PickupBatch batch = pendingPickups.remove(event.getPlayer().getUniqueId());
+        // Returning in case there are no pickups.
+        if (batch == null)
+            return;
+        // Writing pickups to player's inventory in case it's kept...
+        if (event.getKeepInventory() == true)
+            flushPickups(batch);
+        // ...or dropping them along with the rest of the inventory.
+        else event.getDrops().addAll(batch.stacks);
+    }
+
+    /* HELPER METHODS */
+
+    /**
+     * Starts vein mining at specified block. Vein is discovered asynchronously from chunk snapshots, and then broken on the main thread in tick-budgeted batches.
+     */
+    private void startVein(final @NotNull Player player, final @NotNull Block origin) {
+        // Capturing chunks around the origin block. Radius is capped, so no more than 9 chunks are captured.
+        final VeinFinder finder = new VeinFinder(origin, Math.max(0, PluginConfig.MAGNET_SETTINGS_VEIN_MINING_MAX_BLOCKS), Math.clamp(PluginConfig.MAGNET_SETTINGS_VEIN_MINING_MAX_RADIUS, 0, 16));
+        // Creating the job. It's stored before the vein is discovered, so player cannot start multiple veins at once.
+        final VeinJob job = new VeinJob(player, origin.getWorld(), origin.getType());
+        veins.put(player.getUniqueId(), job);
+        // Discovering the vein asynchronously and breaking it on the main thread.
+        CompletableFuture.supplyAsync(finder::find).whenCompleteAsync((blocks, thrown) -> {
+            // Removing the job in case discovery has failed, or there's nothing to break.
+            if (thrown != null || blocks.isEmpty() == true) {
+                veins.remove(player.getUniqueId(), job);
+                return;
+            }
+            job.blocks = blocks;
+            // Breaking the first batch.
+            breakVein(job);
+        }, Tweaks.MAIN_THREAD);
+    }
+
+    /**
+     * Breaks next batch of blocks of specified vein, and schedules the next one in case there are more blocks left.
+     * Blocks are broken via {@link Player#breakBlock(Block)}, so events, drops and tool durability are handled as if player broke them.
+     */
+    private void breakVein(final @NotNull VeinJob job) {
+        final Player player = job.player;
+        // Stopping in case job was cancelled, or player is no longer able to continue.
+        if (veins.get(player.getUniqueId()) != job || player.isOnline() == false || player.getWorld() != job.world || (player.getGameMode() != GameMode.SURVIVAL && player.getGameMode() != GameMode.ADVENTURE)) {
+            veins.remove(player.getUniqueId(), job);
+            return;
+        }
+        // Breaking blocks until the budget for this tick is used.
+        for (int budget = Math.max(1, PluginConfig.MAGNET_SETTINGS_VEIN_MINING_BLOCKS_PER_TICK); budget > 0 && job.index < job.blocks.size();) {
+            final ItemStack tool = player.getInventory().getItemInMainHand();
+            // Stopping in case player is no longer holding pickaxe enchanted with magnet. For example, when it has just broken.
+            if (ToolKind.of(tool.getType()) != ToolKind.PICKAXE || tool.isEnchantedWith("firedot:magnet") == false) {
+                veins.remove(player.getUniqueId(), job);
+                return;
+            }
+            final Block block = job.world.getBlockAtKey(job.blocks.get(job.index++));
+            // Skipping blocks that have changed since the vein was discovered.
+            if (block.getType() != job.type)
+                continue;
+            // Breaking the block.
+            isBreakingVein = true;
+            try {
+                player.breakBlock(block);
+            } finally {
+                isBreakingVein = false;
+            }
+            budget--;
+        }
+        // Scheduling next batch in case there are more blocks left.
+        if (job.index < job.blocks.size())
+            plugin.getBedrockScheduler().run(1L, (_) -> breakVein(job));
+        else veins.remove(player.getUniqueId(), job);
+    }
+
+    /**
+     * Harvests column of blocks of the same type above specified (already broken) block, up to configured height.
+     * Drops are merged and planned into player's inventory. Parts that does not fit are dropped at the bottom of the column.
+     */
+    private void harvestColumn(final @NotNull Player player, final @NotNull ItemStack tool, final @NotNull BlockState broken, final @NotNull PickupBatch batch, final @NotNull Location location) {
+        final World world = broken.getWorld();
+        final Material type = broken.getType();
+        final int x = broken.getX();
+        final int z = broken.getZ();
+        final int bottom = broken.getY() + 1;
+        // Finding the top of the column in a single pass. Top is exclusive.
+        final int limit = Math.min(world.getMaxHeight(), bottom + Math.max(0, PluginConfig.MAGNET_SETTINGS_MAX_COLUMN_HEIGHT));
+        int top = bottom;
+        while (top < limit && world.getType(x, top, z) == type)
+            top++;
+        // Returning in case there is nothing to harvest.
+        if (top == bottom)
+            return;
+        // Getting the bottom block, which is used for effects and leftovers.
+        final Block bottomBlock = world.getBlockAt(x, bottom, z);
+        final BlockData bottomBlockData = bottomBlock.getBlockData();
+        // Collecting and merging drops of all blocks in the column.
+        final List<ItemStack> drops = new ArrayList<>();
+        for (int y = top - 1; y >= bottom; y--) {
+            final Block block = world.getBlockAt(x, y, z);
+            for (final ItemStack drop : block.getDrops(tool, player))
+                merge(drops, drop);
+            // Removing the block from the world, from the top down. Physics are applied only at both ends of the column, which is enough to update neighbours
+            // of the bottom block and whatever is left above the column. When column is taller than the limit, that makes the rest pop naturally, like in vanilla.
+            block.setType(Material.AIR, y == bottom || y == top - 1);
+        }
+        // Playing the block break effect once for the whole column.
+        world.playEffect(bottomBlock.getLocation(), Effect.STEP_SOUND, bottomBlockData);
+        // Planning pickup of merged drops.
+        for (final ItemStack drop : drops) {
+            final int fitted = batch.pickup(drop, location);
+            // Dropping the part that does not fit.
+            if (fitted < drop.getAmount())
+                world.dropItemNaturally(bottomBlock.getLocation(), drop.asQuantity(drop.getAmount() - fitted));
+        }
+    }
+
+    /**
+     * Merges specified item into the list of stacks, respecting maximum stack size, and returns number of stacks that were added. Specified item is not modified.
+     */
+    private static int merge(final @NotNull List<ItemStack> stacks, final @NotNull ItemStack item) {
+        int remaining = item.getAmount();
+        // Merging into similar stacks that are not full.
+        for (final ItemStack stack : stacks) {
+            if (remaining == 0)
+                return 0;
+            if (stack.getAmount() < stack.getMaxStackSize() && stack.isSimilar(item) == true) {
+                final int moved = Math.min(remaining, stack.getMaxStackSize() - stack.getAmount());
+                stack.setAmount(stack.getAmount() + moved);
+                remaining -= moved;
+            }
+        }
+        // Adding the rest as new stacks.
+        int added = 0;
+        while (remaining > 0) {
+            final int moved = Math.min(remaining, item.getMaxStackSize());
+            stacks.add(item.asQuantity(moved));
+            remaining -= moved;
+            added++;
+        }
+        // ...
+        return added;
+    }
+
+    /**
+     * Gives experience to specified player. Depending on configuration, it's either credited directly at the end of current tick, or dropped as an orb at the player's location.
+     */
+    private void giveExperience(final @NotNull Player player, final int experience) {
+        // Aggregating experience to be credited at the end of current tick.
+        if (PluginConfig.MAGNET_SETTINGS_DIRECT_EXPERIENCE == true) {
+            pendingExperience.merge(player.getUniqueId(), experience, Integer::sum);
+            return;
+        }
+        // Dropping experience directly at the player's location to make them pick it up instantly.
+        player.getWorld().spawn(player.getLocation(), ExperienceOrb.class, CreatureSpawnEvent.SpawnReason.NATURAL, (orb) -> {
+            orb.setExperience(experience);
+        });
+    }
+
+    /**
+     * Credits all pending experience. Each player receives a single grant, handled the same way as picking up an orb.
+     */
+    private void flushExperience() {
+        if (pendingExperience.isEmpty() == true)
+            return;
+        // Iterating over pending experience of each player.
+        pendingExperience.forEach((uniqueId, experience) -> {
+            final @Nullable Player player = plugin.getServer().getPlayer(uniqueId);
+            // Skipping players that are no longer online.
+            if (player == null || player.isOnline() == false)
+                return;
+            // Crediting the experience.
+            flushExperience(player, experience);
+        });
+        // Clearing the map.
+        pendingExperience.clear();
+    }
+
+    /**
+     * Credits specified experience to specified player, handled the same way as picking up an orb.
+     */
+    private void flushExperience(final @NotNull Player player, final int experience) {
+        // Calling the event, so other plugins can modify (or observe) the amount, like they would for orbs.
+        final PlayerExpChangeEvent expChangeEvent = new PlayerExpChangeEvent(player, experience);
+        expChangeEvent.callEvent();
+        // Giving experience. Part of it goes to repairing items enchanted with Mending first, which also calls PlayerItemMendEvent.
+        if (expChangeEvent.getAmount() > 0)
+            player.giveExp(expChangeEvent.getAmount(), true);
+        // Playing the orb pickup sound. It is played only to this player, as there is no orb others could see.
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        player.playSound(Sound.sound(EXPERIENCE_ORB_PICKUP_SOUND, Sound.Source.PLAYER, 0.1F, (random.nextFloat() - random.nextFloat()) * 0.35F + 0.9F), Sound.Emitter.self());
+    }
+
+    /**
+     * Returns pickups of specified player planned during current tick, creating new batch in case there are none yet.
+     */
+    private @NotNull PickupBatch getPickupBatch(final @NotNull Player player) {
+        return pendingPickups.computeIfAbsent(player.getUniqueId(), (_) -> new PickupBatch(player, player.getWorld(), InventoryFitPlanner.of(player.getInventory())));
+    }
+
+    /**
+     * Writes all pending pickups to inventories of their players and plays pickup animations. Each player receives a single inventory update.
+     */
+    private void flushPickups() {
+        if (pendingPickups.isEmpty() == true)
+            return;
+        // Iterating over pending pickups of each player.
+        for (final PickupBatch batch : pendingPickups.values())
+            flushPickups(batch);
+        // Clearing the map.
+        pendingPickups.clear();
+    }
+
+    /**
+     * Writes specified pickups to inventory of their player and plays pickup animations. Pickups are dropped where they came from in case player is no longer online.
+     */
+    private void flushPickups(final @NotNull PickupBatch batch) {
+        final Player player = batch.player;
+        // Dropping pickups at their source locations in case player is no longer online. Nothing is written to the inventory.
+        if (player.isOnline() == false) {
+            for (int i = 0; i < batch.stacks.size(); i++) {
+                final Location location = batch.locations.get(i);
+                batch.world.dropItemNaturally(new org.bukkit.Location(batch.world, location.getX(), location.getY(), location.getZ()), batch.stacks.get(i));
+            }
+            return;
+        }
+        // Compacting items picked up during this tick.
+        batch.compact();
+        // Writing planned items to player's inventory. Items that no longer fit (in case inventory was modified in the meantime) are dropped at the player's location.
+        for (final ItemStack leftover : batch.planner.apply())
+            player.getWorld().dropItemNaturally(player.getLocation(), leftover);
+        // Playing pickup animations of merged stacks.
+        playPickupAnimations(player, getAnimationViewers(player), batch.stacks, batch.locations);
+    }
+
+    /**
+     * Returns players that should see pickup animations of specified player. Unless enabled in the configuration, that is only the player itself.
+     * Other viewers are taken from players already tracking specified player, so the cost depends on nearby players and not on all online players.
+     */
+    private @NotNull List<Player> getAnimationViewers(final @NotNull Player player) {
+        // Returning only the player itself in case animations are not visible to others.
+        if (PluginConfig.MAGNET_SETTINGS_SHOW_ANIMATION_TO_NEARBY_PLAYERS == false)
+            return List.of(player);
+        final List<Player> viewers = new ArrayList<>();
+        // Adding the player itself.
+        viewers.add(player);
+        // Adding players tracking the player that are within configured radius.
+        final double radiusSquared = PluginConfig.MAGNET_SETTINGS_ANIMATION_RADIUS * PluginConfig.MAGNET_SETTINGS_ANIMATION_RADIUS;
+        final org.bukkit.Location origin = player.getLocation();
+        for (final Player tracker : player.getTrackedBy())
+            if (tracker.getWorld() == origin.getWorld() && tracker.getLocation().distanceSquared(origin) <= radiusSquared)
+                viewers.add(tracker);
+        // ...
+        return viewers;
+    }
+
+    /**
+     * Plays item pickup animation of specified items, each starting at the location of the same index. Packets are sent asynchronously to specified viewers.
+     */
+    private void playPickupAnimations(final @NotNull Player player, final @NotNull List<Player> viewers, final @NotNull List<ItemStack> items, final @NotNull List<Location> locations) {
+        final FakeEntityAllocator fakeEntities = this.fakeEntities;
+        // Skipping in case allocator is not created yet, which should never happen.
+        if (fakeEntities == null || items.isEmpty() == true)
+            return;
+        // Scheduling packet stuff asynchronously.
+        plugin.getBedrockScheduler().runAsync(1L, (_) -> {
+            for (int i = 0; i < items.size(); i++) {
+                final ItemStack item = items.get(i);
+                // Getting next entity identifier for use with packets.
+                final int id = fakeEntities.nextId();
+                // Creating PlayServerSpawnEntity packet.
+                final var PlayServerSpawnEntityPacket = new WrapperPlayServerSpawnEntity(id, fakeEntities.nextUniqueId(), EntityTypes.ITEM, locations.get(i), 0, 0, null);
+                // Creating PlayServerEntityMetadata packet.
+                final var PlayServerEntityMetadataPacket = new WrapperPlayServerEntityMetadata(id, List.of(new EntityData(8, EntityDataTypes.ITEMSTACK, SpigotConversionUtil.fromBukkitItemStack(item))));
+                // Creating PlayServerCollectItem packet.
+                final var PlayServerCollectItemPacket = new WrapperPlayServerCollectItem(id, player.getEntityId(), item.getAmount());
+                // Sending packets...
+                for (final Player viewer : viewers) {
+                    PacketEvents.getAPI().getPlayerManager().sendPacket(viewer, PlayServerSpawnEntityPacket);
+                    PacketEvents.getAPI().getPlayerManager().sendPacket(viewer, PlayServerEntityMetadataPacket);
+                    PacketEvents.getAPI().getPlayerManager().sendPacket(viewer, PlayServerCollectItemPacket);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns smelting table built from furnace recipes of the server. Only supported minerals (raw ores, ores and similar) are smelted.
+     */
+    private @NotNull ItemStack[] buildSmeltingTable() {
+        final ItemStack[] table = new ItemStack[Material.values().length];
+        // Iterating over all recipes registered on the server.
+        plugin.getServer().recipeIterator().forEachRemaining(recipe -> {
+            // Skipping recipes other than furnace recipes, and those which result in more than one item.
+            if (recipe instanceof FurnaceRecipe furnace && furnace.getInputChoice() instanceof RecipeChoice.MaterialChoice choice && furnace.getResult().getAmount() == 1)
+                for (final Material material : choice.getChoices())
+                    // Adding only supported minerals. First recipe wins.
+                    if (supportedMinerals.contains(material) == true && table[material.ordinal()] == null)
+                        table[material.ordinal()] = furnace.getResult();
+        });
+        // ...
+        return table;
+    }
+
+    /**
+     * Returns compacting table built from crafting recipes of the server. Only recipes made of 9 items of the same supported material are included.
+     */
+    private @NotNull ItemStack[] buildCompactingTable() {
+        final ItemStack[] table = new ItemStack[Material.values().length];
+        // Iterating over all recipes registered on the server.
+        plugin.getServer().recipeIterator().forEachRemaining(recipe -> {
+            // Skipping recipes which result in more than one item.
+            if (recipe.getResult().getAmount() != 1)
+                return;
+            // Getting the only ingredient of the recipe, or null if recipe is not made of 9 items of the same type.
+            final @Nullable Material ingredient = switch (recipe) {
+                case ShapedRecipe shaped -> (String.join("", shaped.getShape()).matches("(.)\\1{8}") == true)
+                        ? getSingleMaterial(shaped.getChoiceMap().get(shaped.getShape()[0].charAt(0)))
+                        : null;
+                case ShapelessRecipe shapeless -> (shapeless.getChoiceList().size() == 9 && shapeless.getChoiceList().stream().distinct().count() == 1)
+                        ? getSingleMaterial(shapeless.getChoiceList().getFirst())
+                        : null;
+                default -> null;
+            };
+            // Adding only supported materials. First recipe wins.
+            if (ingredient != null && (supportedMinerals.contains(ingredient) == true || supportedCrops.contains(ingredient) == true) && table[ingredient.ordinal()] == null)
+                table[ingredient.ordinal()] = recipe.getResult();
+        });
+        // ...
+        return table;
+    }
+
+    // Returns the only material accepted by specified choice, or null if it accepts more (or none).
+    private static @Nullable Material getSingleMaterial(final @Nullable RecipeChoice choice) {
+        return (choice instanceof RecipeChoice.MaterialChoice materialChoice && materialChoice.getChoices().size() == 1) ? materialChoice.getChoices().getFirst() : null;
+    }
+
+    // Returns result for specified item from specified table, or null if there is none. Items with custom data (any component changed) are never transformed.
+    private static @Nullable ItemStack lookup(final @NotNull ItemStack[] table, final @NotNull ItemStack item) {
+        final int index = item.getType().ordinal();
+        return (index < table.length && table[index] != null && item.hasItemMeta() == false) ? table[index] : null;
+    }
+
+    // Returns item transformed according to specified table, or the same item if there's nothing to transform it to.
+    private static @NotNull ItemStack transform(final @NotNull ItemStack[] table, final @NotNull ItemStack item) {
+        final @Nullable ItemStack result = lookup(table, item);
+        return (result != null) ? result.asQuantity(item.getAmount()) : item;
+    }
+
+    /**
+     * Returns {@code true} if specified block or drop is supported by tools of specified kind. Tools other than pickaxes and hoes support everything.
+     */
+    private boolean isSupported(final @NotNull ToolKind kind, final @NotNull Material material) {
+        return switch (kind) {
+            case PICKAXE -> supportedMinerals.contains(material);
+            case HOE -> supportedCrops.contains(material);
+            default -> true;
+        };
+    }
+
+    /**
+     * Holds pickups of a single player planned during current tick. Items are planned against a single inventory snapshot, and stacks to be animated are merged.
+     */
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    private final class PickupBatch {
+
+        private final @NotNull Player player;
+        private final @NotNull World world;
+        private final @NotNull InventoryFitPlanner planner;
+
+        // Merged stacks to be animated, along with locations their animations start at.
+        private final List<ItemStack> stacks = new ArrayList<>();
+        private final List<Location> locations = new ArrayList<>();
+
+        // Amounts of materials picked up during this tick that can be compacted. Only these amounts are compacted, so items that were in the inventory before are left as they are.
+        private final Map<Material, Integer> compactable = new EnumMap<>(Material.class);
+
+        /**
+         * Plans pickup of specified item and returns the amount that fits. Specified item is not modified.
+         * Item is smelted first, in case auto-smelting is enabled.
+         */
+        public int pickup(final @NotNull ItemStack item, final @NotNull Location location) {
+            final ItemStack smelted = transform(smeltingTable, item);
+            final int fitted = planner.fit(smelted);
+            // Returning in case nothing fits.
+            if (fitted == 0)
+                return 0;
+            // Merging into similar stack, or adding a new one. Location of the first pickup is kept for the animation.
+            for (int added = merge(stacks, smelted.asQuantity(fitted)); added > 0; added--)
+                locations.add(location);
+            // Remembering the material and amount in case it can be compacted.
+            if (lookup(compactingTable, smelted) != null)
+                compactable.merge(smelted.getType(), fitted, Integer::sum);
+            // ...
+            return fitted;
+        }
+
+        /**
+         * Plans compaction of materials picked up during this tick, up to the amounts picked up. Results are compacted too, so nuggets can end up as blocks.
+         */
+        public void compact() {
+            // Limiting number of passes, as recipes could theoretically form a cycle.
+            for (int pass = 0; pass < 4 && compactable.isEmpty() == false; pass++) {
+                final Map<Material, Integer> materials = new EnumMap<>(compactable);
+                compactable.clear();
+                // Compacting each material...
+                materials.forEach((material, amount) -> {
+                    final ItemStack result = compactingTable[material.ordinal()];
+                    final int crafted = planner.compact(ItemStack.of(material), result, 9, amount);
+                    // Remembering the result in case it can be compacted further.
+                    if (crafted > 0 && lookup(compactingTable, result) != null)
+                        compactable.merge(result.getType(), crafted, Integer::sum);
                 });
             }
         }
+
+    }
+
+    /**
+     * Holds state of a single vein mining job.
+     */
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    private static final class VeinJob {
+
+        private final @NotNull Player player;
+        private final @NotNull World world;
+        private final @NotNull Material type;
+
+        // Keys of blocks to break, closest first. Empty until the vein is discovered.
+        private List<Long> blocks = List.of();
+
+        // Index of the next block to break.
+        private int index = 0;
+
+    }
+
+    private enum ToolKind {
+        PICKAXE, HOE, SWORD, BOW, OTHER;
+
+        public static @NotNull ToolKind of(final @NotNull Material material) {
+            if (PICKAXES.contains(material) == true)
+                return PICKAXE;
+            if (HOES.contains(material) == true)
+                return HOE;
+            if (SWORDS.contains(material) == true)
+                return SWORD;
+            if (material == Material.BOW || material == Material.CROSSBOW)
+                return BOW;
+            // ...
+            return OTHER;
+        }
+
     }
 
 }
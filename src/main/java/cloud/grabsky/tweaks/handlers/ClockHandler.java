@@ -14,99 +14,221 @@
  */
 package cloud.grabsky.tweaks.handlers;
 
-import cloud.grabsky.tweaks.Module;
-import cloud.grabsky.tweaks.Tweaks;
 import cloud.grabsky.tweaks.configuration.PluginConfig;
-import net.kyori.adventure.audience.Audience;
-import net.kyori.adventure.bossbar.BossBar;
+import cloud.grabsky.tweaks.configuration.PluginConfig.BossBarProperties;
+import cloud.grabsky.tweaks.hud.HudProvider;
+import cloud.grabsky.tweaks.hud.HudState;
+import cloud.grabsky.tweaks.utils.ComponentTemplate;
+import io.papermc.paper.event.player.PlayerItemFrameChangeEvent;
 import net.kyori.adventure.text.Component;
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.FluidCollisionMode;
+import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.ItemFrame;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
-import org.bukkit.event.HandlerList;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
-import org.bukkit.event.player.PlayerQuitEvent;
-import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.event.entity.EntityRemoveEvent;
+import org.bukkit.event.hanging.HangingBreakEvent;
+import org.bukkit.event.hanging.HangingPlaceEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import org.bukkit.event.world.EntitiesUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.bukkit.util.RayTraceResult;
+import org.bukkit.util.Vector;
 
-import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import lombok.AccessLevel;
-import lombok.RequiredArgsConstructor;
+public final class ClockHandler implements HudProvider, Listener {
 
-@RequiredArgsConstructor(access = AccessLevel.PUBLIC)
-public final class ClockHandler implements Module, Listener {
+    // Parsed bossbar text. Compiled once on each reload.
+    private @NotNull ComponentTemplate template = ComponentTemplate.EMPTY;
 
-    private final @NotNull Tweaks plugin;
-    private final @NotNull HashMap<UUID, BossBar> storage = new HashMap<>();
+    // Maximum distance at which clock placed inside an item frame can be looked at.
+    private static final double MAX_DISTANCE = 5.0D;
 
-    private @Nullable BukkitTask task = null;
+    // Maximum distance between line of sight and center of the item frame.
+    private static final double MAX_OFFSET = 0.5D;
+
+    // Distance before the item frame at which blocks are no longer considered to be in the way.
+    private static final double LINE_OF_SIGHT_MARGIN = 0.1D;
+
+    // Holds positions of item frames that contain a clock, indexed by world and chunk. Written on the main thread and read from the HUD task.
+    private final Map<UUID, Map<Long, Map<UUID, Vector>>> frames = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean isEnabled() {
+        return PluginConfig.ENABLED_MODULES_ENHANCED_CLOCK;
+    }
+
+    @Override
+    public long getRefreshRate() {
+        return PluginConfig.CLOCK_SETTINGS_REFRESH_RATE;
+    }
+
+    @Override
+    public @NotNull BossBarProperties getBossBar() {
+        return PluginConfig.CLOCK_SETTINGS_BOSSBAR;
+    }
 
     @Override
     public void load() {
-        // Clearing handlers list.
-        HandlerList.unregisterAll(this);
-        // Clearing current task in case it already exist.
-        if (this.task != null) {
-            // Cancelling existing task.
-            task.cancel();
-            // Removing viewers from currently stored boss bars.
-            storage.values().forEach(bar -> bar.viewers().forEach(viewer -> {
-                // Trying to cast to an Audience, which is very unlikely to fail.
-                if (viewer instanceof Audience audience)
-                    // Removing this audience from viewers.
-                    bar.removeViewer(audience);
-            }));
-            // Clearing the map, boss bars should (hopefully) be cleaned by GC.
-            storage.clear();
+        // Parsing the bossbar text.
+        this.template = ComponentTemplate.of(PluginConfig.CLOCK_SETTINGS_BOSSBAR.getText(), "time");
+        // Re-building the index from item frames that are currently loaded. Frames loaded later are indexed by event handlers.
+        frames.clear();
+        for (final World world : Bukkit.getWorlds())
+            for (final ItemFrame frame : world.getEntitiesByClass(ItemFrame.class))
+                index(frame);
+    }
+
+    @Override
+    public boolean isVisible(final @NotNull Player player, final @NotNull Material mainHand, final @NotNull Material offHand) {
+        return mainHand == Material.CLOCK || offHand == Material.CLOCK || isLookingAtClock(player) == true;
+    }
+
+    @Override
+    public void render(final @NotNull Player player, final @NotNull HudState state) {
+        final int minuteOfDay = WorldTimeFormatter.getMinuteOfDay(player.getWorld().getTime());
+        // Re-rendering the name only in case displayed minute has changed since the last refresh.
+        if (state.updateMinuteOfDay(minuteOfDay) == true)
+            state.getBar().name(template.render(Component.text(WorldTimeFormatter.format(minuteOfDay))));
+    }
+
+    /**
+     * Returns {@code true} if player is looking at an indexed item frame within {@link #MAX_DISTANCE} blocks. Only the nearest frame
+     * in line of sight is checked against blocks in between, so clocks behind walls are not matched.
+     */
+    private boolean isLookingAtClock(final @NotNull Player player) {
+        final @Nullable Map<Long, Map<UUID, Vector>> chunks = frames.get(player.getWorld().getUID());
+        // Returning early in case there are no indexed frames in this world.
+        if (chunks == null || chunks.isEmpty() == true)
+            return false;
+        final Location eye = player.getEyeLocation();
+        final Vector direction = eye.getDirection();
+        // Distance to the nearest frame in line of sight, if any.
+        double nearest = Double.MAX_VALUE;
+        // Iterating over chunks that are within reach.
+        for (int chunkX = ((int) Math.floor(eye.getX() - MAX_DISTANCE)) >> 4; chunkX <= ((int) Math.floor(eye.getX() + MAX_DISTANCE)) >> 4; chunkX++) {
+            for (int chunkZ = ((int) Math.floor(eye.getZ() - MAX_DISTANCE)) >> 4; chunkZ <= ((int) Math.floor(eye.getZ() + MAX_DISTANCE)) >> 4; chunkZ++) {
+                final @Nullable Map<UUID, Vector> chunk = chunks.get(Chunk.getChunkKey(chunkX, chunkZ));
+                // Skipping chunks with no indexed frames.
+                if (chunk == null)
+                    continue;
+                // Testing each frame against line of sight.
+                for (final Vector position : chunk.values()) {
+                    final double dx = position.getX() - eye.getX();
+                    final double dy = position.getY() - eye.getY();
+                    final double dz = position.getZ() - eye.getZ();
+                    final double distanceSquared = dx * dx + dy * dy + dz * dz;
+                    // Skipping frames that are out of reach.
+                    if (distanceSquared > MAX_DISTANCE * MAX_DISTANCE)
+                        continue;
+                    // Projecting the frame onto line of sight. Frames behind the player are skipped.
+                    final double projection = dx * direction.getX() + dy * direction.getY() + dz * direction.getZ();
+                    if (projection <= 0.0D)
+                        continue;
+                    // Checking distance between the frame and line of sight, and remembering the nearest one.
+                    if (distanceSquared - projection * projection <= MAX_OFFSET * MAX_OFFSET && projection < nearest)
+                        nearest = projection;
+                }
+            }
         }
-        // Returning in case enhanced compass is disabled.
-        if (PluginConfig.ENABLED_MODULES_ENHANCED_CLOCK == false)
-            return;
-        // Registering event handlers.
-        plugin.getServer().getPluginManager().registerEvents(this, plugin);
-        // Scheduling the task.
-        this.task = plugin.getBedrockScheduler().repeatAsync(PluginConfig.CLOCK_SETTINGS_REFRESH_RATE, PluginConfig.CLOCK_SETTINGS_REFRESH_RATE, Long.MAX_VALUE, (_) -> {
-            for (final Player player : Bukkit.getOnlinePlayers()) {
-                // Getting or computing boss bar.
-                final BossBar bar = storage.computeIfAbsent(player.getUniqueId(), (_) -> {
-                    return BossBar.bossBar(Component.empty(), 0.0F, PluginConfig.CLOCK_SETTINGS_BOSSBAR.getColor(), PluginConfig.CLOCK_SETTINGS_BOSSBAR.getOverlay());
-                });
-                if (player.getInventory().getItemInMainHand().getType() == Material.CLOCK || player.getInventory().getItemInOffHand().getType() == Material.CLOCK || (player.getTargetEntity(5) instanceof ItemFrame frame && frame.getItem().getType() == Material.CLOCK) == true) {
-                    final Component text = Component.text(PluginConfig.CLOCK_SETTINGS_BOSSBAR.getText().replace("<time>", WorldTimeFormatter.getFormattedTime(player.getWorld().getTime())));
-                    // Updating the name in case different.
-                    if (bar.name().equals(text) == false)
-                        bar.name(text);
-                    // Showing in case hidden.
-                    if (bar.viewers().iterator().hasNext() == false)
-                        bar.addViewer(player);
-                } else if (bar.viewers().iterator().hasNext() == true)
-                    bar.removeViewer(player);
+        // Returning in case no frame is in line of sight.
+        if (nearest == Double.MAX_VALUE)
+            return false;
+        // Checking if there are no blocks between the player and the frame. Frames are attached to blocks, so small margin is allowed.
+        final @Nullable RayTraceResult result = player.getWorld().rayTraceBlocks(eye, direction, nearest, FluidCollisionMode.NEVER, true);
+        return result == null || result.getHitPosition().distanceSquared(eye.toVector()) >= (nearest - LINE_OF_SIGHT_MARGIN) * (nearest - LINE_OF_SIGHT_MARGIN);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemFrameChange(final @NotNull PlayerItemFrameChangeEvent event) {
+        switch (event.getAction()) {
+            case PLACE -> {
+                if (event.getItemStack().getType() == Material.CLOCK)
+                    add(event.getItemFrame());
             }
-            // ...
-            return true;
-        });
+            case REMOVE -> remove(event.getItemFrame());
+            case ROTATE -> { /* ROTATION DOES NOT CHANGE THE ITEM */ }
+        }
     }
 
-    @Override
-    public void unload() { /* HANDLED INSIDE LOAD */ }
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onHangingPlace(final @NotNull HangingPlaceEvent event) {
+        if (event.getEntity() instanceof ItemFrame frame)
+            index(frame);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onHangingBreak(final @NotNull HangingBreakEvent event) {
+        if (event.getEntity() instanceof ItemFrame frame)
+            remove(frame);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR) // Covers frames removed without HangingBreakEvent, like ones killed by commands or removed by plugins.
+    public void onEntityRemove(final @NotNull EntityRemoveEvent event) {
+        if (event.getEntity() instanceof ItemFrame frame)
+            remove(frame);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesLoad(final @NotNull EntitiesLoadEvent event) {
+        for (final Entity entity : event.getEntities())
+            if (entity instanceof ItemFrame frame)
+                index(frame);
+    }
 
-    @EventHandler // Clean-ups boss bar related stuff when player leaves. Apparently boss bars are untracked by the server and can be subject to memory leaks.
-    public void onPlayerQuit(final @NotNull PlayerQuitEvent event) {
-        final UUID uniqueId = event.getPlayer().getUniqueId();
-        // Removing boss bar from the map.
-        final @Nullable BossBar bar = storage.remove(uniqueId);
-        // Removing player from viewers of this boss bar.
-        if (bar != null)
-            event.getPlayer().hideBossBar(bar);
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesUnload(final @NotNull EntitiesUnloadEvent event) {
+        final @Nullable Map<Long, Map<UUID, Vector>> chunks = frames.get(event.getWorld().getUID());
+        // Removing all frames of the unloaded chunk.
+        if (chunks != null)
+            chunks.remove(event.getChunk().getChunkKey());
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(final @NotNull WorldUnloadEvent event) {
+        frames.remove(event.getWorld().getUID());
+    }
+
+    /* HELPER METHODS */
+
+    // Adds specified item frame to the index in case it contains a clock.
+    private void index(final @NotNull ItemFrame frame) {
+        if (frame.getItem().getType() == Material.CLOCK)
+            add(frame);
+    }
 
+    private void add(final @NotNull ItemFrame frame) {
+        final Location location = frame.getLocation();
+        // Adding position of the frame to the index.
+        frames.computeIfAbsent(location.getWorld().getUID(), (_) -> new ConcurrentHashMap<>())
+                .computeIfAbsent(Chunk.getChunkKey(location), (_) -> new ConcurrentHashMap<>())
+                .put(frame.getUniqueId(), location.toVector());
+    }
+
+    private void remove(final @NotNull ItemFrame frame) {
+        final Location location = frame.getLocation();
+        // Getting indexed frames of this world.
+        final @Nullable Map<Long, Map<UUID, Vector>> chunks = frames.get(location.getWorld().getUID());
+        // Removing the frame and the chunk entry in case it's left empty.
+        if (chunks != null)
+            chunks.computeIfPresent(Chunk.getChunkKey(location), (_, chunk) -> {
+                chunk.remove(frame.getUniqueId());
+                return (chunk.isEmpty() == false) ? chunk : null;
+            });
+    }
 
     /*
      *
@@ -133,13 +255,24 @@ public final class ClockHandler implements Module, Listener {
         private static final int TICKS_PER_HOUR = 1_000;
         private static final double TICKS_PER_MINUTE = 1_000D / 60D;
 
-        private static @NotNull String getFormattedTime(long ticks) {
-            ticks = ticks - TICKS_AT_MIDNIGHT + TICKS_PER_DAY;
-            long hours = ticks / TICKS_PER_HOUR;
-            ticks -= hours * TICKS_PER_HOUR;
-            long mins = (long) Math.floor(ticks / TICKS_PER_MINUTE);
-            if (hours >= 24)
-                hours = hours - 24;
+        private static final int MINUTES_PER_HOUR = 60;
+
+        /**
+         * Returns minute of the day (0 - 1439) for specified world time.
+         */
+        private static int getMinuteOfDay(final long ticks) {
+            // Shifting the time, because world time of 0 is not midnight.
+            final long shifted = Math.floorMod(ticks - TICKS_AT_MIDNIGHT + TICKS_PER_DAY, TICKS_PER_DAY);
+            // ...
+            return (int) ((shifted / TICKS_PER_HOUR) * MINUTES_PER_HOUR + (long) Math.floor((shifted % TICKS_PER_HOUR) / TICKS_PER_MINUTE));
+        }
+
+        /**
+         * Formats minute of the day to human-readable {@code HH:mm} format.
+         */
+        private static @NotNull String format(final int minuteOfDay) {
+            final int hours = minuteOfDay / MINUTES_PER_HOUR;
+            final int mins = minuteOfDay % MINUTES_PER_HOUR;
             return (hours < 10 ? "0" + hours : hours) + ":" + (mins < 10 ? "0" + mins : mins);
         }
 
@@ -14,108 +14,70 @@
  */
 package cloud.grabsky.tweaks.handlers;
 
-import cloud.grabsky.tweaks.Module;
-import cloud.grabsky.tweaks.Tweaks;
 import cloud.grabsky.tweaks.configuration.PluginConfig;
-import net.kyori.adventure.audience.Audience;
-import net.kyori.adventure.bossbar.BossBar;
+import cloud.grabsky.tweaks.configuration.PluginConfig.BossBarProperties;
+import cloud.grabsky.tweaks.hud.HudProvider;
+import cloud.grabsky.tweaks.hud.HudState;
+import cloud.grabsky.tweaks.utils.ComponentTemplate;
 import net.kyori.adventure.text.Component;
-import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
-import org.bukkit.event.EventHandler;
-import org.bukkit.event.HandlerList;
-import org.bukkit.event.Listener;
-import org.bukkit.event.player.PlayerQuitEvent;
-import org.bukkit.scheduler.BukkitTask;
 
 import java.text.DecimalFormat;
-import java.util.HashMap;
-import java.util.UUID;
 
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
-import lombok.AccessLevel;
-import lombok.RequiredArgsConstructor;
+public final class CompassHandler implements HudProvider {
 
-@RequiredArgsConstructor(access = AccessLevel.PUBLIC)
-public final class CompassHandler implements Module, Listener {
+    // Parsed bossbar text. Compiled once on each reload.
+    private @NotNull ComponentTemplate template = ComponentTemplate.EMPTY;
 
-    private final Tweaks plugin;
-    private final HashMap<UUID, BossBar> storage = new HashMap<>();
+    private static final DecimalFormat COORD_FORMAT = new DecimalFormat("#,###");
 
-    private @Nullable BukkitTask task = null;
+    @Override
+    public boolean isEnabled() {
+        return PluginConfig.ENABLED_MODULES_ENHANCED_COMPASS;
+    }
 
-    private static final DecimalFormat COORD_FORMAT = new DecimalFormat("#,###");
+    @Override
+    public long getRefreshRate() {
+        return PluginConfig.COMPASS_SETTINGS_REFRESH_RATE;
+    }
+
+    @Override
+    public @NotNull BossBarProperties getBossBar() {
+        return PluginConfig.COMPASS_SETTINGS_BOSSBAR;
+    }
 
     @Override
     public void load() {
-        // Clearing handlers list.
-        HandlerList.unregisterAll(this);
-        // Clearing current task in case it already exist.
-        if (this.task != null) {
-            // Cancelling existing task.
-            this.task.cancel();
-            // Removing viewers from currently stored boss bars.
-            storage.values().forEach(bar -> bar.viewers().forEach(viewer -> {
-                // Trying to cast to an Audience, which is very unlikely to fail.
-                if (viewer instanceof Audience audience)
-                    // Removing this audience from viewers.
-                    bar.removeViewer(audience);
-            }));
-            // Clearing the map, boss bars should (hopefully) be cleaned by GC.
-            storage.clear();
-        }
-        // Returning in case enhanced compass is disabled.
-        if (PluginConfig.ENABLED_MODULES_ENHANCED_COMPASS == false)
-            return;
-        // Registering event handlers.
-        plugin.getServer().getPluginManager().registerEvents(this, plugin);
-        // Scheduling the task.
-        this.task = plugin.getBedrockScheduler().repeatAsync(PluginConfig.COMPASS_SETTINGS_REFRESH_RATE, PluginConfig.COMPASS_SETTINGS_REFRESH_RATE, Long.MAX_VALUE, (cycles) -> {
-            for (final Player player : Bukkit.getOnlinePlayers()) {
-                // Getting or computing boss bar.
-                final BossBar bar = storage.computeIfAbsent(player.getUniqueId(), (___) -> {
-                    return BossBar.bossBar(Component.empty(), 0.0F, PluginConfig.COMPASS_SETTINGS_BOSSBAR.getColor(), PluginConfig.COMPASS_SETTINGS_BOSSBAR.getOverlay());
-                });
-                if (player.getInventory().getItemInMainHand().getType() == Material.COMPASS || player.getInventory().getItemInOffHand().getType() == Material.COMPASS) {
-                    final Component text = Component.text(getFormattedCoords(player));
-                    // Updating the name in case different.
-                    if (bar.name().equals(text) == false)
-                        bar.name(text);
-                    // Showing in case hidden.
-                    if (bar.viewers().iterator().hasNext() == false)
-                        bar.addViewer(player);
-                } else if (bar.viewers().iterator().hasNext() == true)
-                    bar.removeViewer(player);
-            }
-            // ...
-            return true;
-        });
+        // Parsing the bossbar text.
+        this.template = ComponentTemplate.of(PluginConfig.COMPASS_SETTINGS_BOSSBAR.getText(), "location_x", "location_y", "location_z");
     }
 
     @Override
-    public void unload() { /* HANDLED INSIDE LOAD */ }
+    public boolean isVisible(final @NotNull Player player, final @NotNull Material mainHand, final @NotNull Material offHand) {
+        return mainHand == Material.COMPASS || offHand == Material.COMPASS;
+    }
 
-    @EventHandler // Clean-ups boss bar related stuff when player leaves. Apparently boss bars are untracked by the server and can be subject to memory leaks.
-    public void onPlayerQuit(final @NotNull PlayerQuitEvent event) {
-        final UUID uniqueId = event.getPlayer().getUniqueId();
-        // Removing boss bar from the map.
-        final @Nullable BossBar bar = storage.remove(uniqueId);
-        // Removing player from viewers of this boss bar.
-        if (bar != null)
-            event.getPlayer().hideBossBar(bar);
+    @Override
+    public void render(final @NotNull Player player, final @NotNull HudState state) {
+        final Location location = player.getLocation();
+        // Re-rendering the name only in case block position has changed since the last refresh.
+        if (state.updateBlockPosition(location.getBlockX(), location.getBlockY(), location.getBlockZ()) == true)
+            state.getBar().name(getFormattedCoords(location));
     }
 
     /**
-     * Formats and returns human-readable coordinates ready to be converted to a {@link Component}.
+     * Formats and returns human-readable coordinates rendered from the pre-parsed template.
      */
-    private static @NotNull String getFormattedCoords(final @NotNull Player player) {
-        return PluginConfig.COMPASS_SETTINGS_BOSSBAR.getText()
-                .replace("<location_x>", COORD_FORMAT.format(player.getLocation().getBlockX()))
-                .replace("<location_y>", COORD_FORMAT.format(player.getLocation().getBlockY()))
-                .replace("<location_z>", COORD_FORMAT.format(player.getLocation().getBlockZ()));
+    private @NotNull Component getFormattedCoords(final @NotNull Location location) {
+        return template.render(
+                Component.text(COORD_FORMAT.format(location.getBlockX())),
+                Component.text(COORD_FORMAT.format(location.getBlockY())),
+                Component.text(COORD_FORMAT.format(location.getBlockZ()))
+        );
     }
 
 }
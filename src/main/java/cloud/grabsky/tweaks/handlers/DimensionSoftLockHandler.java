@@ -19,8 +19,10 @@ import cloud.grabsky.bedrock.util.Interval;
 import cloud.grabsky.tweaks.Module;
 import cloud.grabsky.tweaks.Tweaks;
 import cloud.grabsky.tweaks.configuration.PluginConfig;
+import cloud.grabsky.tweaks.utils.ComponentTemplate;
 import cloud.grabsky.tweaks.utils.Extensions;
 import net.kyori.adventure.sound.Sound;
+import net.kyori.adventure.text.Component;
 import org.bukkit.FluidCollisionMode;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -36,6 +38,8 @@ import org.bukkit.event.player.PlayerTeleportEvent;
 import org.bukkit.util.RayTraceResult;
 import org.bukkit.util.Vector;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.function.Predicate;
 
 import org.jetbrains.annotations.NotNull;
@@ -56,11 +60,20 @@ public final class DimensionSoftLockHandler implements Module, Listener {
     @Getter(AccessLevel.PUBLIC)
     public @NotNull Tweaks plugin;
 
+    // Parsed error messages. Compiled once on each reload.
+    private final Map<NamespacedKey, ComponentTemplate> errorMessages = new HashMap<>();
+
     @Override
     public void load() {
-        if (PluginConfig.ENABLED_MODULES_DIMENSION_SOFT_LOCK == true)
-            // Registering events.
-            plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        // Clearing previously parsed error messages.
+        errorMessages.clear();
+        // Returning in case module is disabled.
+        if (PluginConfig.ENABLED_MODULES_DIMENSION_SOFT_LOCK == false)
+            return;
+        // Parsing error messages.
+        PluginConfig.DIMENSION_SOFT_LOCK_SETTINGS_ERROR_MESSAGES.forEach((world, message) -> errorMessages.put(world, ComponentTemplate.of(message, "time_left")));
+        // Registering events.
+        plugin.getServer().getPluginManager().registerEvents(this, plugin);
     }
 
     @Override
@@ -89,9 +102,7 @@ public final class DimensionSoftLockHandler implements Module, Listener {
             // Cancelling the event.
             event.setCancelled(true);
             // Sending error message to the player.
-            Message.of(PluginConfig.DIMENSION_SOFT_LOCK_SETTINGS_ERROR_MESSAGES.getOrDefault(world, ""))
-                    .placeholder("time_left", formatInterval(interval, 2))
-                    .send(event.getPlayer());
+            Message.of(errorMessages.getOrDefault(world, ComponentTemplate.EMPTY).render(Component.text(formatInterval(interval, 2)))).send(event.getPlayer());
             // Getting the error sound.
             final @Nullable Sound sound = PluginConfig.DIMENSION_SOFT_LOCK_SETTINGS_ERROR_SOUNDS.get(world);
             // Playing error sound to the player.
@@ -19,31 +19,46 @@ import cloud.grabsky.bedrock.util.Interval.Unit;
 import cloud.grabsky.tweaks.Module;
 import cloud.grabsky.tweaks.Tweaks;
 import cloud.grabsky.tweaks.configuration.PluginConfig;
-import com.jeff_media.morepersistentdatatypes.DataType;
+import cloud.grabsky.tweaks.utils.ExpiringCache;
+import cloud.grabsky.tweaks.vaults.PlayerGrid;
+import cloud.grabsky.tweaks.vaults.TrialSpawnerTracker;
+import cloud.grabsky.tweaks.vaults.VaultCooldownIndex;
+import cloud.grabsky.tweaks.vaults.VaultCountdown;
+import cloud.grabsky.tweaks.vaults.VaultEntry;
+import cloud.grabsky.tweaks.vaults.VaultUnlockCodec;
 import io.papermc.paper.event.block.VaultChangeStateEvent;
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
-import org.bukkit.NamespacedKey;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.World;
-import org.bukkit.block.TrialSpawner;
+import org.bukkit.block.Block;
 import org.bukkit.block.Vault;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
+import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
 import org.bukkit.inventory.EquipmentSlot;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.persistence.PersistentDataContainer;
-import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.scheduler.BukkitTask;
 
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -63,30 +78,160 @@ public final class ReusableVaultsHandler implements Module, Listener {
 
     private @Nullable Expansion expansion;
 
-    private static final NamespacedKey VAULT_DATA_LAST_UNLOCK = new NamespacedKey("tweaks", "vault_data/last_unlock");
-    private static final PersistentDataType<PersistentDataContainer, HashMap<UUID, Long>> HASH_MAP_UUID_TO_LONG = DataType.asHashMap(DataType.UUID, DataType.LONG);
+    // Cooldowns of trial spawners in loaded chunks. Created on first load, and kept up to date only while PlaceholderAPI is enabled.
+    private @Nullable TrialSpawnerTracker spawnerTracker = null;
+
+    // Unlock timestamps of loaded vaults. Written back to the world on chunk unload, periodically and on shutdown.
+    private final VaultCooldownIndex index = new VaultCooldownIndex();
+
+    // Online players grouped by chunk column, updated as they move between columns. Used for vault range checks.
+    private final PlayerGrid players = new PlayerGrid();
+
+    private @Nullable BukkitTask saveTask = null;
+
+    // Number of publishes after which countdowns that are not read are dropped. Countdowns are published once per second.
+    private static final int COUNTDOWN_MAX_IDLE_PUBLISHES = 30;
+
+    // Subscribed countdowns, keyed by player and vault.
+    private final Map<CountdownKey, VaultCountdown> countdowns = new ConcurrentHashMap<>();
+
+    private @Nullable BukkitTask countdownTask = null;
 
     @Override
     public void load() {
         // Clearing handlers list.
         HandlerList.unregisterAll(this);
+        HandlerList.unregisterAll(players);
+        // Cancelling the save task if exist.
+        if (saveTask != null)
+            saveTask.cancel();
+        // Cancelling the countdown task if exist, and dropping countdowns as configured cooldowns may have changed.
+        if (countdownTask != null) {
+            countdownTask.cancel();
+            countdowns.clear();
+        }
         // Unregistering PAPI expansion.
         if (plugin.getServer().getPluginManager().isPluginEnabled("PlaceholderAPI") == true) {
-            if (expansion != null && expansion.isRegistered() == true)
+            if (expansion != null && expansion.isRegistered() == true) {
                 expansion.unregister();
+                HandlerList.unregisterAll(expansion);
+            }
+            // Creating the tracker of trial spawners, or unregistering existing one.
+            if (spawnerTracker == null)
+                spawnerTracker = new TrialSpawnerTracker(plugin);
+            else HandlerList.unregisterAll(spawnerTracker);
+            // Registering the tracker, recording spawners of already loaded chunks and (re-)starting periodic refresh of spawners near players.
+            plugin.getServer().getPluginManager().registerEvents(spawnerTracker, plugin);
+            spawnerTracker.recordAll();
+            spawnerTracker.start();
             // ...
-            expansion = new Expansion(plugin);
+            expansion = new Expansion(plugin, this, spawnerTracker);
             expansion.register();
+            // Registering event handlers of the expansion. These are needed even if module is disabled.
+            plugin.getServer().getPluginManager().registerEvents(expansion, plugin);
         }
         // Returning in case module is disabled.
         if (PluginConfig.ENABLED_MODULES_REUSABLE_VAULTS == false)
             return;
         // Registering event handlers.
         plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        // Registering event handlers of the player grid and adding players that are already online.
+        plugin.getServer().getPluginManager().registerEvents(players, plugin);
+        players.rebuild();
+        // Scheduling the save task. Interval is configured in minutes.
+        final long interval = Math.max(1L, PluginConfig.VAULTS_SETTINGS_SAVE_INTERVAL) * 60L * 20L;
+        this.saveTask = plugin.getBedrockScheduler().repeat(interval, interval, Long.MAX_VALUE, (_) -> {
+            // Writing changed entries, keeping them loaded.
+            index.saveAll(false);
+            // ...
+            return true;
+        });
+        // Scheduling the countdown task. Countdowns only read their own fields, so they're published off the main thread.
+        this.countdownTask = plugin.getBedrockScheduler().repeatAsync(20L, 20L, Long.MAX_VALUE, (_) -> {
+            final long now = System.currentTimeMillis();
+            // Publishing each countdown, and dropping ones that are no longer read.
+            countdowns.values().removeIf(countdown -> countdown.publish(now, COUNTDOWN_MAX_IDLE_PUBLISHES) == false);
+            // ...
+            return true;
+        });
     }
 
     @Override
-    public void unload() { /* HANDLED INSIDE LOAD */ }
+    public void unload() {
+        // Writing and clearing all entries, so they're loaded again from the world after reload.
+        index.saveAll(true);
+    }
+
+    @Override
+    public void shutdown() {
+        // Writing all entries before worlds are saved for the last time.
+        index.saveAll(true);
+    }
+
+    /**
+     * Subscribes to cooldown of vault at specified block for specified player, or returns existing subscription. Returns {@code null} if block is not a vault,
+     * vault has no cooldown configured or module is disabled. Subscription is dropped when player quits, or when it's not read for some time. Must be called on the main thread.
+     */
+    public @Nullable VaultCountdown subscribe(final @NotNull Player player, final @NotNull Block block) {
+        // Returning in case module is disabled, as cooldowns are not tracked.
+        if (PluginConfig.ENABLED_MODULES_REUSABLE_VAULTS == false)
+            return null;
+        final CountdownKey key = new CountdownKey(player.getUniqueId(), block.getWorld().getUID(), block.getBlockKey());
+        // Returning existing subscription.
+        final @Nullable VaultCountdown existing = countdowns.get(key);
+        if (existing != null)
+            return existing;
+        // Getting the indexed vault. Loaded from the block on first access.
+        final @Nullable VaultEntry entry = index.get(block);
+        // Returning in case vault has no cooldown configured.
+        if (entry == null || PluginConfig.VAULTS_SETTINGS_COOLDOWNS.containsKey(entry.getLootTable()) == false)
+            return null;
+        // Computing the expiry once. Multiplying by 1000 to convert seconds to milliseconds.
+        final long expiresAt = entry.getLastUnlock(player.getUniqueId()) + PluginConfig.VAULTS_SETTINGS_COOLDOWNS.get(entry.getLootTable()) * 1000;
+        // Creating and storing the subscription.
+        final VaultCountdown countdown = new VaultCountdown(key.playerId(), key.worldId(), key.blockKey(), expiresAt);
+        countdowns.put(key, countdown);
+        // ...
+        return countdown;
+    }
+
+    /**
+     * Returns existing subscription to cooldown of vault at specified position for specified player, or {@code null} if there is none. Can be called from any thread.
+     */
+    public @Nullable VaultCountdown getCountdown(final @NotNull UUID playerId, final @NotNull World world, final long blockKey) {
+        return countdowns.get(new CountdownKey(playerId, world.getUID(), blockKey));
+    }
+
+    /**
+     * Drops specified subscription.
+     */
+    public void unsubscribe(final @NotNull VaultCountdown countdown) {
+        countdowns.remove(new CountdownKey(countdown.getPlayerId(), countdown.getWorldId(), countdown.getBlockKey()), countdown);
+    }
+
+    /**
+     * Writes changed unlock timestamps of loaded vaults to their blocks, so they can be read from the world. Must be called on the main thread.
+     */
+    public void save() {
+        index.saveAll(false);
+    }
+
+    /**
+     * Removes all unlock data of vault at specified block, including timestamps held in memory and list of rewarded players. Must be called on the main thread.
+     */
+    public void reset(final @NotNull Block block) {
+        // Forgetting the vault, so timestamps held in memory are not written back.
+        index.remove(block);
+        // Dropping countdowns of the vault.
+        countdowns.keySet().removeIf(key -> key.blockKey() == block.getBlockKey() && key.worldId().equals(block.getWorld().getUID()) == true);
+        // Removing unlock data and rewarded players from the block.
+        if (block.getState() instanceof Vault vault) {
+            vault.getPersistentDataContainer().remove(VaultUnlockCodec.VAULT_DATA_LAST_UNLOCK);
+            vault.getRewardedPlayers().forEach(vault::removeRewardedPlayer);
+            // Updating the block state. Otherwise changes won't be applied.
+            vault.update();
+        }
+    }
 
     // NOTE: Suggested alternative event here: https://github.com/PaperMC/Paper/discussions/11687
     // Due to lack of proper API, PlayerInteractEvent must be used for the time being with no better workaround.
@@ -94,7 +239,8 @@ public final class ReusableVaultsHandler implements Module, Listener {
     public void onVaultUnlock(final @NotNull PlayerInteractEvent event) {
         if (event.getAction() == Action.RIGHT_CLICK_BLOCK && event.getClickedBlock().getType() == Material.VAULT) {
             final org.bukkit.block.data.type.Vault blockData = (org.bukkit.block.data.type.Vault) event.getClickedBlock().getBlockData();
-            final org.bukkit.block.Vault blockState = (Vault) event.getClickedBlock().getState();
+            // Reading the block state without taking a snapshot, as nothing is modified.
+            final org.bukkit.block.Vault blockState = (Vault) event.getClickedBlock().getState(false);
             // Skipping states we don't need to handle.
             if (blockData.getVaultState() == State.UNLOCKING || blockData.getVaultState() == State.EJECTING)
                 return;
@@ -107,95 +253,151 @@ public final class ReusableVaultsHandler implements Module, Listener {
                     return;
                 // Getting unique id of the player.
                 final UUID uniqueId = event.getPlayer().getUniqueId();
-                // Getting vault config values.
-                final String lootTable = blockState.getLootTable().getKey().asString();
+                // Getting the indexed vault. Loaded from the block on first access.
+                final @Nullable VaultEntry entry = index.get(event.getClickedBlock());
                 // Skipping vaults that have no cooldown configured.
-                if (PluginConfig.VAULTS_SETTINGS_COOLDOWNS.containsKey(lootTable) == false)
+                if (entry == null || PluginConfig.VAULTS_SETTINGS_COOLDOWNS.containsKey(entry.getLootTable()) == false)
                     return;
-                final Long cooldown = PluginConfig.VAULTS_SETTINGS_COOLDOWNS.get(lootTable);
-                // Getting the map of last uses on a
-                final HashMap<UUID, Long> lastUnlock = blockState.getPersistentDataContainer().getOrDefault(VAULT_DATA_LAST_UNLOCK, HASH_MAP_UUID_TO_LONG, new HashMap<>());
+                final Long cooldown = PluginConfig.VAULTS_SETTINGS_COOLDOWNS.get(entry.getLootTable());
                 // Cancelling the event if player is on cooldown.
-                if (System.currentTimeMillis() - lastUnlock.getOrDefault(uniqueId, 0L) < cooldown * 1000) {
+                if (System.currentTimeMillis() - entry.getLastUnlock(uniqueId) < cooldown * 1000) {
                     event.setCancelled(true);
                     return;
                 }
-                // Getting the current vault state.
-                final var firstState = blockData.getVaultState();
-                // Scheduling further checks next tick to see if the vault was actually unlocked or not.
-                plugin.getBedrockScheduler().run(1L, (_) -> {
-                    final var updatedBlockState = (Vault) event.getClickedBlock().getState();
-                    // Using getAsString in second condition saves on screen space and improves code readability. (No inline cast)
-                    if (firstState == State.ACTIVE && updatedBlockState.getBlockData().getAsString().contains("unlocking") == true) {
-                        // Getting the updated map. In case it changed during this tick.
-                        final HashMap<UUID, Long> lastUnlockUpdated = updatedBlockState.getPersistentDataContainer().getOrDefault(VAULT_DATA_LAST_UNLOCK, HASH_MAP_UUID_TO_LONG, new HashMap<>());
-                        // Applying cooldown to the player.
-                        lastUnlockUpdated.put(uniqueId, System.currentTimeMillis());
-                        // Updating map in the PDC.
-                        updatedBlockState.getPersistentDataContainer().set(VAULT_DATA_LAST_UNLOCK, HASH_MAP_UUID_TO_LONG, lastUnlockUpdated);
-                        // Updating the block state. Otherwise changes won't be applied.
-                        updatedBlockState.update();
-                    }
-                    // Clearing list of rewarded players as we're applying our own cooldown logic.
-                    updatedBlockState.getRewardedPlayers().forEach(updatedBlockState::removeRewardedPlayer);
+                // Removing player from rewarded players in case they were rewarded before cooldowns were tracked. Otherwise vault would not accept the key.
+                if (blockState.hasRewardedPlayer(uniqueId) == true) {
+                    final org.bukkit.block.Vault snapshot = (Vault) event.getClickedBlock().getState();
+                    snapshot.removeRewardedPlayer(uniqueId);
                     // Updating the block state. Otherwise changes won't be applied.
-                    updatedBlockState.update();
-                });
+                    snapshot.update();
+                }
+                // Vault processes the key right after this event, within the same tick, and the unlock is observed by onVaultUnlocking.
             }
         }
     }
 
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onVaultUnlocking(final @NotNull VaultChangeStateEvent event) {
+        if (event.getCurrentState() == State.ACTIVE && event.getNewState() == State.UNLOCKING) {
+            final Block block = event.getBlock();
+            // Skipping unlocks that were not triggered by a player.
+            if (event.getPlayer() == null)
+                return;
+            final UUID uniqueId = event.getPlayer().getUniqueId();
+            // Getting the indexed vault. Already loaded when key was used.
+            final @Nullable VaultEntry entry = index.get(block);
+            // Skipping vaults that have no cooldown configured.
+            if (entry == null || PluginConfig.VAULTS_SETTINGS_COOLDOWNS.containsKey(entry.getLootTable()) == false)
+                return;
+            final long now = System.currentTimeMillis();
+            // Applying cooldown to the player. Written to the block later, by the index.
+            entry.setLastUnlock(uniqueId, now);
+            // Updating the countdown of the player, if subscribed. Multiplying by 1000 to convert seconds to milliseconds.
+            final @Nullable VaultCountdown countdown = countdowns.get(new CountdownKey(uniqueId, block.getWorld().getUID(), block.getBlockKey()));
+            if (countdown != null)
+                countdown.setExpiresAt(now + PluginConfig.VAULTS_SETTINGS_COOLDOWNS.get(entry.getLootTable()) * 1000);
+            // Removing the player from rewarded players as we're applying our own cooldown logic. Vault adds the player right after this event, so it's done next tick.
+            // Block entity is modified directly, without taking a snapshot. Players that are still on the list are also removed when they use the key again.
+            plugin.getBedrockScheduler().run(1L, (_) -> {
+                if (block.getState(false) instanceof Vault vault)
+                    vault.removeRewardedPlayer(uniqueId);
+            });
+        }
+    }
+
     @EventHandler(ignoreCancelled = true)
     public void onVaultStateChange(final @NotNull VaultChangeStateEvent event) {
         if (event.getNewState() == State.ACTIVE) {
-            final org.bukkit.block.Vault blockState = (Vault) event.getBlock().getState();
-            // Getting the loot-table of vault associated with the event.
-            final String lootTable = blockState.getLootTable().getKey().asString();
-            // Getting the activation range of vault associated with the event.
-            final double activationRange = blockState.getActivationRange();
-            // Getting the cooldown for this vault.
-            final long cooldown = PluginConfig.VAULTS_SETTINGS_COOLDOWNS.getOrDefault(lootTable, Long.MAX_VALUE);
+            // Getting the indexed vault. Loaded from the block on first access.
+            final @Nullable VaultEntry entry = index.get(event.getBlock());
             // Skipping vaults that have no cooldown configured.
-            if (PluginConfig.VAULTS_SETTINGS_COOLDOWNS.containsKey(lootTable) == false)
+            if (entry == null || PluginConfig.VAULTS_SETTINGS_COOLDOWNS.containsKey(entry.getLootTable()) == false)
                 return;
-            // Getting the map of players that unlocked the vault.
-            final HashMap<UUID, Long> lastUnlock = blockState.getPersistentDataContainer().getOrDefault(VAULT_DATA_LAST_UNLOCK, HASH_MAP_UUID_TO_LONG, new HashMap<>());
-            // Iterating over the list of all players in range of vault and checking if all of them are on cooldown.
-            if (event.getBlock().getLocation().getNearbyPlayers(activationRange).stream().allMatch(it -> System.currentTimeMillis() - lastUnlock.getOrDefault(it.getUniqueId(), 0L) < cooldown * 1000) == true) {
+            // Getting the cooldown for this vault. Multiplying by 1000 to convert seconds to milliseconds.
+            final long cooldown = PluginConfig.VAULTS_SETTINGS_COOLDOWNS.get(entry.getLootTable()) * 1000;
+            // Getting the current time once, instead of for every player.
+            final long now = System.currentTimeMillis();
+            // Checking if all players in range of vault are on cooldown. Only grid cells that overlap the activation range are visited.
+            if (players.allMatch(event.getBlock().getLocation().toCenterLocation(), entry.getActivationRange(), it -> now - entry.getLastUnlock(it.getUniqueId()) < cooldown) == true) {
                 // Cancelling the event.
                 event.setCancelled(true);
                 // Handling a case where previous vault state was 'EJECTING'.
                 if (event.getCurrentState() == State.EJECTING) {
-                    final org.bukkit.block.data.type.Vault blockData = (org.bukkit.block.data.type.Vault) event.getBlock().getBlockData();
+                    final Block block = event.getBlock();
                     // "Uncancelling" the event.
                     event.setCancelled(false);
                     // Explicitly setting the state to 'INACTIVE' after vault has finished dispensing rewards.
                     plugin.getBedrockScheduler().run(1L, (_) -> {
-                        // Setting vault state to INACTIVE.
-                        blockData.setVaultState(State.INACTIVE);
-                        // Updating block data of this block state.
-                        blockState.setBlockData(blockData);
-                        // Updating the block state. Otherwise changes won't be applied.
-                        blockState.update();
+                        // Checking if the block is still a vault.
+                        if (block.getBlockData() instanceof org.bukkit.block.data.type.Vault blockData) {
+                            // Setting vault state to INACTIVE.
+                            blockData.setVaultState(State.INACTIVE);
+                            // Updating block data of the block. Block entity is kept, as the type does not change.
+                            block.setBlockData(blockData);
+                        }
                     });
                 }
             }
         }
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(final @NotNull PlayerQuitEvent event) {
+        final UUID uniqueId = event.getPlayer().getUniqueId();
+        // Dropping countdowns of the player.
+        countdowns.keySet().removeIf(key -> key.playerId().equals(uniqueId) == true);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onVaultBreak(final @NotNull BlockBreakEvent event) {
+        // Forgetting vaults that are removed from the world.
+        if (event.getBlock().getType() == Material.VAULT)
+            index.remove(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(final @NotNull ChunkUnloadEvent event) {
+        // Writing changed vaults before the chunk is saved, and removing them from the index.
+        index.save(event.getWorld(), event.getChunk().getChunkKey(), true);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(final @NotNull WorldUnloadEvent event) {
+        // Writing changed vaults of the world, and removing them from the index.
+        index.save(event.getWorld(), true);
+    }
+
     @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
-    private static final class Expansion extends PlaceholderExpansion {
+    private static final class Expansion extends PlaceholderExpansion implements Listener {
 
         private final @NotNull Tweaks plugin;
+        private final @NotNull ReusableVaultsHandler handler;
+        private final @NotNull TrialSpawnerTracker spawnerTracker;
+
+        private static final String TRIAL_SPAWNER_COOLDOWN_PREFIX = "trial_spawner_cooldown_";
+        private static final String VAULT_COOLDOWN_PREFIX = "vault_cooldown_";
 
-        // Responsible for storing 'vault_cooldown' placeholders. These must be stored in some way or another because retrieving them is an immediate operation.
-        // NOTE: In case ConcurrentModificationException or similar issues happen, this can probably be changed to a ConcurrentMap instead.
-        private final Map<String, String> vaultsCache = new HashMap<>();
+        // Maximum number of parsed targets. Cache is cleared once it's reached, which should never happen with a sane number of placeholders.
+        private static final int MAX_TARGETS = 4096;
 
-        // Responsible for storing 'vault_cooldown' placeholders. These must be stored in some way or another because retrieving them is an immediate operation.
-        // NOTE: In case ConcurrentModificationException or similar issues happen, this can probably be changed to a ConcurrentMap instead.
-        private final Map<String, String> spawnersCache = new HashMap<>();
+        // Placeholder parameters parsed to targets, so each distinct parameter is parsed only once.
+        private final Map<String, Target> targets = new ConcurrentHashMap<>();
 
+        // Loaded worlds, keyed by their name. Kept up to date by world load and unload events.
+        private final Map<String, World> worlds = Bukkit.getWorlds().stream().collect(Collectors.toConcurrentMap(World::getName, Function.identity()));
+
+        // Maximum number of resolved placeholders, and time after which placeholders that are no longer requested expire. In milliseconds.
+        private static final int MAX_RESULTS = 8192;
+        private static final long RESULT_TTL = 15_000L;
+
+        // Responsible for storing resolved placeholders. These must be stored in some way or another because retrieving them is an immediate operation.
+        private final ExpiringCache<ResultKey, String> results = new ExpiringCache<>(MAX_RESULTS, RESULT_TTL);
+
+        // Requests waiting to be resolved on the main thread. Duplicate requests made within the same tick are resolved once.
+        private final Set<Request> queue = ConcurrentHashMap.newKeySet();
+
+        // Whether resolution of queued requests is already scheduled.
+        private final AtomicBoolean isResolveScheduled = new AtomicBoolean(false);
 
         @Override
         public @NotNull String getIdentifier() {
@@ -220,91 +422,154 @@ public final class ReusableVaultsHandler implements Module, Listener {
         @Override
         public @Nullable String onRequest(final @NotNull OfflinePlayer offlinePlayer, final @NotNull String params) {
             // Placeholder: %tweaks_trial_spawner_cooldown_[X];[Y];[Z];[WORLD]%
-            if (params.startsWith("trial_spawner_cooldown_") == true && offlinePlayer instanceof Player player && player.isOnline() == true) {
-                // Getting the location part of the param.
-                final String[] part = params.replace("trial_spawner_cooldown_", "").split(";");
-                // Making sure it's of the correct length.
-                if (part.length == 4) {
-                    // Parsing location part to actual values.
-                    final @Nullable Double x = parseDouble(part[0]);
-                    final @Nullable Double y = parseDouble(part[1]);
-                    final @Nullable Double z = parseDouble(part[2]);
-                    final @Nullable World world = Bukkit.getWorlds().stream().filter(it -> it.getName().equals(part[3])).findFirst().orElse(null);
-                    // Checking if all values exist.
-                    if (x != null && y != null && z != null && world != null) {
-                        // Creating Location instance from provided values.
-                        final Location location = new Location(world, x, y, z);
-                        // Checking if chunk is loaded and if block at the requested location is a vault.
-                        if (location.isChunkLoaded() == false || location.getBlock().getType() != Material.TRIAL_SPAWNER)
-                            return "N/A";
-                        // Scheduling stuff that needs to be done on the main thread.
-                        plugin.getBedrockScheduler().run(1L, (_) -> {
-                            final org.bukkit.block.TrialSpawner blockState = (TrialSpawner) location.getBlock().getState();
-                            // Returning empty string if spawner is currently active.
-                            if (blockState.getNextSpawnAttempt() != 0) {
-                                spawnersCache.put(player.getUniqueId() + "/" + params, "");
-                                return;
-                            }
-                            // Getting the timestamp at which cooldown is ending at.
-                            final long cooldownEndsAt = blockState.getCooldownEnd();
-                            // Calculating the time that is left on the spawner.
-                            final Interval difference = Interval.between(cooldownEndsAt, location.getWorld().getGameTime(), Unit.TICKS);
-                            // Updating the cached placeholder.
-                            spawnersCache.put(player.getUniqueId() + "/" + params, (difference.as(Unit.MILLISECONDS) > 0) ? difference.toString() : "");
-                        });
-                    }
-                }
-                // Returning the value from cache.
-                return spawnersCache.getOrDefault(player.getUniqueId() + "/" + params, "");
-            }
             // Placeholder: %tweaks_vault_cooldown_[X];[Y];[Z];[WORLD]%
-            else if (params.startsWith("vault_cooldown_") == true && offlinePlayer instanceof Player player && player.isOnline() == true) {
-                // Getting the location part of the param.
-                final String[] part = params.replace("vault_cooldown_", "").split(";");
-                // Making sure it's of the correct length.
-                if (part.length == 4) {
-                    // Parsing location part to actual values.
-                    final @Nullable Double x = parseDouble(part[0]);
-                    final @Nullable Double y = parseDouble(part[1]);
-                    final @Nullable Double z = parseDouble(part[2]);
-                    final @Nullable World world = Bukkit.getWorlds().stream().filter(it -> it.getName().equals(part[3])).findFirst().orElse(null);
-                    // Checking if all values exist.
-                    if (x != null && y != null && z != null && world != null) {
-                        // Creating Location instance from provided values.
-                        final Location location = new Location(world, x, y, z);
-                        // Checking if chunk is loaded and if block at the requested location is a vault.
-                        if (location.isChunkLoaded() == false || location.getBlock().getType() != Material.VAULT)
-                            return "N/A";
-                        // Scheduling stuff that needs to be done on the main thread.
-                        plugin.getBedrockScheduler().run(1L, (_) -> {
-                            final org.bukkit.block.Vault blockState = (Vault) location.getBlock().getState();
-                            // Getting the loot-table of vault associated with the event.
-                            final String lootTable = blockState.getLootTable().getKey().asString();
-                            // Skipping vaults that have no cooldown configured. This could be scheduled in the task below but returning early ensures no thread is created for no reason.
-                            if (PluginConfig.VAULTS_SETTINGS_COOLDOWNS.containsKey(lootTable) == false)
-                                return;
-                            // Scheduling stuff that can be done outside of the main thread.
-                            plugin.getBedrockScheduler().runAsync(1L, (_) -> {
-                                // Getting the cooldown for this vault. Multiplying by 1000 to convert seconds to milliseconds.
-                                final long cooldown = PluginConfig.VAULTS_SETTINGS_COOLDOWNS.get(lootTable) * 1000;
-                                // Getting the map of players that unlocked the vault.
-                                final HashMap<UUID, Long> lastUnlock = blockState.getPersistentDataContainer().getOrDefault(VAULT_DATA_LAST_UNLOCK, HASH_MAP_UUID_TO_LONG, new HashMap<>());
-                                // Calculating the cooldown that is left on the vault.
-                                final Interval difference = Interval.between(lastUnlock.getOrDefault(player.getUniqueId(), 0L) + cooldown, System.currentTimeMillis(), Unit.MILLISECONDS);
-                                // Updating the cached placeholder.
-                                vaultsCache.put(player.getUniqueId() + "/" + params, (difference.as(Unit.MILLISECONDS) > 0) ? difference.toString() : "");
-                            });
-                        });
-                    }
+            if ((params.startsWith(TRIAL_SPAWNER_COOLDOWN_PREFIX) == true || params.startsWith(VAULT_COOLDOWN_PREFIX) == true) && offlinePlayer instanceof Player player && player.isOnline() == true) {
+                // Getting the parsed target.
+                final @Nullable Target target = getTarget(params);
+                // Returning empty string in case parameter is not valid.
+                if (target == null)
+                    return "";
+                // Returning cooldown of trial spawners straight from the tracker.
+                if (target.kind() == Kind.TRIAL_SPAWNER) {
+                    final Location location = target.location();
+                    final long remaining = spawnerTracker.getRemainingCooldown(target.world(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+                    // Returning "N/A" in case spawner is not tracked, and empty string in case it's active or not on cooldown.
+                    return (remaining == TrialSpawnerTracker.UNTRACKED) ? "N/A" : (remaining > 0) ? Interval.between(remaining, 0L, Unit.TICKS).toString() : "";
                 }
+                // Returning text of the countdown in case player is subscribed to this vault already.
+                final @Nullable VaultCountdown countdown = handler.getCountdown(player.getUniqueId(), target.world(), target.blockKey());
+                if (countdown != null)
+                    return countdown.getText();
+                final ResultKey key = new ResultKey(player.getUniqueId(), target.world().getUID(), target.blockKey(), target.kind());
                 // Returning the value from cache.
-                return vaultsCache.getOrDefault(player.getUniqueId() + "/" + params, "");
+                final @Nullable String result = results.get(key);
+                if (result != null)
+                    return result;
+                // Queuing the request, only on cache miss. It's resolved either to a subscription or to a cached value.
+                enqueue(new Request(target, player, key));
+                // Returning "N/A" until the request is resolved.
+                return "N/A";
             }
             return null;
         }
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onPlayerQuit(final @NotNull PlayerQuitEvent event) {
+            final UUID uniqueId = event.getPlayer().getUniqueId();
+            // Removing placeholders resolved for the player.
+            results.removeIf(key -> key.playerId().equals(uniqueId) == true);
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onWorldLoad(final @NotNull WorldLoadEvent event) {
+            worlds.put(event.getWorld().getName(), event.getWorld());
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        public void onWorldUnload(final @NotNull WorldUnloadEvent event) {
+            worlds.remove(event.getWorld().getName());
+            // Clearing targets, as some of them may reference unloaded world.
+            targets.clear();
+        }
+
+        // Returns target of specified placeholder parameter, parsing it in case it's not cached yet. Returns null for invalid parameters, which are not cached.
+        private @Nullable Target getTarget(final @NotNull String params) {
+            final @Nullable Target existing = targets.get(params);
+            // Returning cached target.
+            if (existing != null)
+                return existing;
+            // Parsing the parameter.
+            final @Nullable Target target = parseTarget(params);
+            // Caching valid targets. Cache is cleared in case it has grown too large.
+            if (target != null) {
+                if (targets.size() >= MAX_TARGETS)
+                    targets.clear();
+                targets.put(params, target);
+            }
+            // ...
+            return target;
+        }
+
+        // Parses specified placeholder parameter. Returns null in case it's not valid, or world is not loaded.
+        private @Nullable Target parseTarget(final @NotNull String params) {
+            final Kind kind = (params.startsWith(TRIAL_SPAWNER_COOLDOWN_PREFIX) == true) ? Kind.TRIAL_SPAWNER : Kind.VAULT;
+            // Getting the location part of the param.
+            final String[] part = params.substring((kind == Kind.TRIAL_SPAWNER) ? TRIAL_SPAWNER_COOLDOWN_PREFIX.length() : VAULT_COOLDOWN_PREFIX.length()).split(";");
+            // Making sure it's of the correct length.
+            if (part.length != 4)
+                return null;
+            // Parsing location part to actual values.
+            final @Nullable Double x = parseDouble(part[0]);
+            final @Nullable Double y = parseDouble(part[1]);
+            final @Nullable Double z = parseDouble(part[2]);
+            final @Nullable World world = worlds.get(part[3]);
+            // Checking if all values exist.
+            if (x == null || y == null || z == null || world == null)
+                return null;
+            // Creating the target. Location is created once and shared by all requests for this target.
+            final Location location = new Location(world, Math.floor(x), Math.floor(y), Math.floor(z));
+            // ...
+            return new Target(kind, world, Block.getBlockKey(location.getBlockX(), location.getBlockY(), location.getBlockZ()), location);
+        }
+
+        // Adds specified request to the queue and schedules resolution, unless it's already scheduled.
+        private void enqueue(final @NotNull Request request) {
+            queue.add(request);
+            // Scheduling the resolution for the next tick.
+            if (isResolveScheduled.compareAndSet(false, true) == true)
+                plugin.getBedrockScheduler().run(1L, (_) -> resolve());
+        }
+
+        // Resolves all queued requests. Must be called on the main thread.
+        private void resolve() {
+            // Allowing next resolution to be scheduled. Requests queued from now on are either resolved in this pass, or in the next one.
+            isResolveScheduled.set(false);
+            // Resolving and removing each request.
+            for (final Iterator<Request> iterator = queue.iterator(); iterator.hasNext();) {
+                final Request request = iterator.next();
+                iterator.remove();
+                // Skipping requests of players that are no longer online.
+                if (request.player().isOnline() == false)
+                    continue;
+                // Resolving the request and updating the cached placeholder. Only vault placeholders are queued.
+                final @Nullable String result = resolveVault(request);
+                if (result != null)
+                    results.put(request.key(), result);
+            }
+        }
+
+        // Subscribes player that made specified request to the countdown of vault at location of the request. Returns placeholder value only when there is nothing to subscribe to.
+        private @Nullable String resolveVault(final @NotNull Request request) {
+            final Location location = request.target().location();
+            // Checking if chunk is loaded and if block at the requested location is a vault.
+            if (location.isChunkLoaded() == false || location.getBlock().getType() != Material.VAULT)
+                return "N/A";
+            // Subscribing to the countdown. Further requests are served directly from the subscription.
+            final @Nullable VaultCountdown countdown = handler.subscribe(request.player(), location.getBlock());
+            // Returning empty string in case vault has no cooldown configured, or module is disabled. Cached, so it's not resolved again on every request.
+            return (countdown == null) ? "" : null;
+        }
+
+        private enum Kind {
+            TRIAL_SPAWNER, VAULT
+        }
+
+        // Parsed placeholder parameter. Location must not be modified, as it's shared.
+        private record Target(@NotNull Kind kind, @NotNull World world, long blockKey, @NotNull Location location) { /* DATA */ }
+
+        // Placeholder request waiting to be resolved. Key is the key of the cached placeholder.
+        private record Request(@NotNull Target target, @NotNull Player player, @NotNull ResultKey key) { /* DATA */ }
+
+        // Key of a resolved placeholder.
+        private record ResultKey(@NotNull UUID playerId, @NotNull UUID worldId, long blockKey, @NotNull Kind kind) { /* KEY */ }
+
     }
 
 
+    // Key of a subscribed countdown.
+    private record CountdownKey(@NotNull UUID playerId, @NotNull UUID worldId, long blockKey) { /* KEY */ }
+
+
     /* HELPER METHODS */
 
     private static @Nullable Double parseDouble(final @NotNull String value) {
@@ -0,0 +1,194 @@
+/*
+ * Tweaks (https://github.com/Grabsky/Tweaks)
+ *
+ * Copyright (C) 2024  Grabsky <michal.czopek.foss@proton.me>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License v3 as published by
+ * the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License v3 for more details.
+ */
+package cloud.grabsky.tweaks.hud;
+
+import cloud.grabsky.tweaks.Tweaks;
+import net.kyori.adventure.text.Component;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Caches biomes of chunk sections at quart (4x4x4) resolution, which is the resolution biomes are stored at.
+ * Lookups are safe to do from any thread. Missing sections are requested and filled from {@link ChunkSnapshot} on the main thread.
+ */
+@RequiredArgsConstructor(access = AccessLevel.PUBLIC)
+public final class BiomeCache {
+
+    private final @NotNull Tweaks plugin;
+
+    // Returned by lookups when section is not cached (yet).
+    public static final int UNKNOWN = -1;
+
+    // Holds cached sections of each world. Sections are keyed by packed coordinates and hold 64 interned biome identifiers.
+    private final Map<UUID, Map<Long, short[]>> sections = new ConcurrentHashMap<>();
+
+    // Holds chunks that were requested and are waiting to be filled on the main thread.
+    private final Map<UUID, Set<Long>> requests = new ConcurrentHashMap<>();
+    private final AtomicBoolean isFillScheduled = new AtomicBoolean(false);
+
+    // Interned biomes. Written only on the main thread, and replaced on each write so it can be read from other threads.
+    private final Map<Biome, Short> ids = new HashMap<>();
+    private volatile Component[] names = new Component[0];
+
+    /**
+     * Returns interned identifier of the biome at specified position, or {@link #UNKNOWN} if section is not cached yet.
+     * In such case, section is requested to be filled on the main thread and should become available shortly.
+     */
+    public int getBiomeId(final @NotNull World world, final int x, final int y, final int z) {
+        // Ignoring positions outside of the world height.
+        if (y < world.getMinHeight() || y >= world.getMaxHeight())
+            return UNKNOWN;
+        // Getting cached sections of this world.
+        final @Nullable Map<Long, short[]> worldSections = sections.get(world.getUID());
+        // Looking up the section.
+        final short @Nullable [] section = (worldSections != null) ? worldSections.get(sectionKey(x >> 4, y >> 4, z >> 4)) : null;
+        // Returning the biome identifier if section is cached.
+        if (section != null)
+            return section[quartIndex(x, y, z)];
+        // Requesting the chunk to be filled otherwise.
+        requests.computeIfAbsent(world.getUID(), (_) -> ConcurrentHashMap.newKeySet()).add(chunkKey(x >> 4, z >> 4));
+        // Scheduling the fill in case it's not scheduled already.
+        if (isFillScheduled.compareAndSet(false, true) == true)
+            plugin.getBedrockScheduler().run(1L, (_) -> fill());
+        // ...
+        return UNKNOWN;
+    }
+
+    /**
+     * Returns name of the biome with specified interned identifier.
+     */
+    public @NotNull Component getName(final int id) {
+        final Component[] names = this.names;
+        // ...
+        return (id >= 0 && id < names.length) ? names[id] : Component.empty();
+    }
+
+    /**
+     * Removes all cached sections of specified chunk. Should be called when chunk is unloaded.
+     */
+    public void invalidate(final @NotNull World world, final int chunkX, final int chunkZ) {
+        final @Nullable Map<Long, short[]> worldSections = sections.get(world.getUID());
+        // Removing each section of the chunk.
+        if (worldSections != null)
+            for (int sectionY = world.getMinHeight() >> 4; sectionY < world.getMaxHeight() >> 4; sectionY++)
+                worldSections.remove(sectionKey(chunkX, sectionY, chunkZ));
+    }
+
+    /**
+     * Removes all cached sections of specified world. Should be called when world is unloaded.
+     */
+    public void invalidate(final @NotNull World world) {
+        sections.remove(world.getUID());
+        requests.remove(world.getUID());
+    }
+
+    /**
+     * Removes everything from the cache.
+     */
+    public void invalidateAll() {
+        sections.clear();
+        requests.clear();
+    }
+
+    /* FILLING */
+
+    // Fills all requested chunks. Must be called on the main thread.
+    private void fill() {
+        isFillScheduled.set(false);
+        // Iterating over requested chunks of each world.
+        requests.forEach((uniqueId, chunks) -> {
+            final @Nullable World world = plugin.getServer().getWorld(uniqueId);
+            // Skipping worlds that are no longer loaded.
+            if (world == null) {
+                requests.remove(uniqueId);
+                return;
+            }
+            // Getting or creating cached sections of this world.
+            final Map<Long, short[]> worldSections = sections.computeIfAbsent(uniqueId, (_) -> new ConcurrentHashMap<>());
+            // Filling each requested chunk...
+            for (final Long key : chunks) {
+                chunks.remove(key);
+                // Unpacking chunk coordinates.
+                final int chunkX = (int) (long) key;
+                final int chunkZ = (int) (key >> 32);
+                // Skipping chunks that are not loaded. These will be requested again once player gets there.
+                if (world.isChunkLoaded(chunkX, chunkZ) == false)
+                    continue;
+                // Taking snapshot of the chunk, including biomes.
+                final ChunkSnapshot snapshot = world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, true, false);
+                // Copying biomes of each section.
+                for (int sectionY = world.getMinHeight() >> 4; sectionY < world.getMaxHeight() >> 4; sectionY++) {
+                    final short[] section = new short[64];
+                    for (int qy = 0; qy < 4; qy++)
+                        for (int qz = 0; qz < 4; qz++)
+                            for (int qx = 0; qx < 4; qx++)
+                                section[(qy << 4) | (qz << 2) | qx] = intern(snapshot.getBiome(qx << 2, (sectionY << 4) + (qy << 2), qz << 2));
+                    // Storing the section.
+                    worldSections.put(sectionKey(chunkX, sectionY, chunkZ), section);
+                }
+            }
+        });
+    }
+
+    // Returns interned identifier of specified biome, interning it in case it's seen for the first time. Must be called on the main thread.
+    private short intern(final @NotNull Biome biome) {
+        final @Nullable Short existing = ids.get(biome);
+        // Returning existing identifier.
+        if (existing != null)
+            return existing;
+        // Getting the NamespacedKey object containing the biome key. It must be done via UnsafeValues interface for compatibility with custom biomes.
+        final NamespacedKey key = biome.getKey();
+        // Interning the biome and its name.
+        final short id = (short) names.length;
+        final Component[] names = Arrays.copyOf(this.names, id + 1);
+        names[id] = Component.translatable("biome." + key.namespace() + "." + key.value());
+        // Publishing the name before the identifier, so it's available to readers the moment they see this identifier.
+        this.names = names;
+        ids.put(biome, id);
+        // ...
+        return id;
+    }
+
+    /* HELPER METHODS */
+
+    private static long sectionKey(final int chunkX, final int sectionY, final int chunkZ) {
+        return ((long) chunkX & 0x3FFFFFL) << 42 | ((long) chunkZ & 0x3FFFFFL) << 20 | ((long) sectionY & 0xFFFFFL);
+    }
+
+    private static long chunkKey(final int chunkX, final int chunkZ) {
+        return ((long) chunkX & 0xFFFFFFFFL) | ((long) chunkZ & 0xFFFFFFFFL) << 32;
+    }
+
+    private static int quartIndex(final int x, final int y, final int z) {
+        return (((y >> 2) & 3) << 4) | (((z >> 2) & 3) << 2) | ((x >> 2) & 3);
+    }
+
+}
@@ -0,0 +1,238 @@
+/*
+ * Tweaks (https://github.com/Grabsky/Tweaks)
+ *
+ * Copyright (C) 2024  Grabsky <michal.czopek.foss@proton.me>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License v3 as published by
+ * the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License v3 for more details.
+ */
+package cloud.grabsky.tweaks.hud;
+
+import cloud.grabsky.tweaks.Module;
+import cloud.grabsky.tweaks.Tweaks;
+import cloud.grabsky.tweaks.configuration.PluginConfig.BossBarProperties;
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.bossbar.BossBar;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Drives all boss bar HUDs from a single task. Held items are read once per player per cycle, and boss bars are recycled between HUDs and players.
+ */
+@RequiredArgsConstructor(access = AccessLevel.PUBLIC)
+public final class HudEngine implements Module, Listener {
+
+    private final @NotNull Tweaks plugin;
+    private final @NotNull List<HudProvider> providers;
+
+    // Maximum number of unused boss bars to keep for later use.
+    private static final int MAX_POOL_SIZE = 256;
+
+    // Holds states of all HUDs currently visible to the player. Indexed the same way as providers they were created for.
+    private final Map<UUID, Slots> storage = new ConcurrentHashMap<>();
+
+    // Holds boss bars that are currently unused and can be recycled.
+    private final Queue<BossBar> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger poolSize = new AtomicInteger(0);
+
+    private @Nullable BukkitTask task = null;
+
+    // Providers that are enabled in the configuration. Updated on each reload.
+    private HudProvider[] enabled = new HudProvider[0];
+
+    // Players that have left since the last cycle. Their states are released by the next cycle, so boss bars are never released while still being rendered.
+    private final Queue<UUID> quitting = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void load() {
+        // Clearing handlers list.
+        HandlerList.unregisterAll(this);
+        for (final HudProvider provider : providers)
+            if (provider instanceof Listener listener)
+                HandlerList.unregisterAll(listener);
+        // Clearing current task in case it already exist.
+        if (this.task != null) {
+            // Cancelling existing task.
+            this.task.cancel();
+            // Removing viewers from currently stored boss bars.
+            storage.values().forEach(this::release);
+            // Clearing the map.
+            storage.clear();
+        }
+        // Collecting enabled providers.
+        this.enabled = providers.stream().filter(HudProvider::isEnabled).toArray(HudProvider[]::new);
+        // Returning in case all HUDs are disabled.
+        if (enabled.length == 0)
+            return;
+        // Loading providers and calculating the task period, which is the greatest common divisor of all refresh rates.
+        long period = 0L;
+        for (final HudProvider provider : enabled) {
+            provider.load();
+            // Registering event handlers of the provider, if any.
+            if (provider instanceof Listener listener)
+                plugin.getServer().getPluginManager().registerEvents(listener, plugin);
+            // ...
+            period = gcd(period, Math.max(1L, provider.getRefreshRate()));
+        }
+        // Registering event handlers.
+        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        // Forgetting players that have left before, as all states were released above.
+        quitting.clear();
+        // Scheduling the task. Number of ticks elapsed since the task has started is confined to the task.
+        final long finalPeriod = period;
+        final AtomicLong ticks = new AtomicLong(0L);
+        // Capturing providers of this load. Cycle of the previous task can still be running after it was cancelled, and must not mix up states of both.
+        final HudProvider[] enabled = this.enabled;
+        this.task = plugin.getBedrockScheduler().repeatAsync(period, period, Long.MAX_VALUE, (_) -> {
+            final long elapsed = ticks.addAndGet(finalPeriod);
+            // Releasing states of players that have left since the last cycle.
+            for (UUID uniqueId; (uniqueId = quitting.poll()) != null;) {
+                final @Nullable Slots slots = storage.remove(uniqueId);
+                if (slots != null)
+                    release(slots);
+            }
+            // Collecting providers that should be refreshed in this cycle.
+            boolean isAnyDue = false;
+            final boolean[] isDue = new boolean[enabled.length];
+            for (int i = 0; i < enabled.length; i++)
+                if (elapsed % Math.max(1L, enabled[i].getRefreshRate()) == 0)
+                    isDue[i] = isAnyDue = true;
+            // Skipping cycles with nothing to do.
+            if (isAnyDue == false)
+                return true;
+            // Iterating over online players.
+            for (final Player player : Bukkit.getOnlinePlayers()) {
+                final @Nullable Slots slots = storage.compute(player.getUniqueId(), (_, existing) -> {
+                    // Keeping states created for current providers.
+                    if (existing != null && existing.providers() == enabled)
+                        return existing;
+                    // Releasing states created for other providers. These can be put by cycle of the previous task.
+                    if (existing != null)
+                        release(existing);
+                    // Creating new states, unless player has left in the meantime. Otherwise, these would never be cleaned up.
+                    return (player.isConnected() == true) ? new Slots(enabled, new HudState[enabled.length]) : null;
+                });
+                // Skipping players that have left in the meantime.
+                if (slots == null)
+                    continue;
+                final HudState[] states = slots.states();
+                // Reading held items once for all HUDs.
+                final PlayerInventory inventory = player.getInventory();
+                final Material mainHand = inventory.getItemInMainHand().getType();
+                final Material offHand = inventory.getItemInOffHand().getType();
+                // Refreshing each HUD that is due in this cycle.
+                for (int i = 0; i < enabled.length; i++) {
+                    if (isDue[i] == false)
+                        continue;
+                    final HudProvider provider = enabled[i];
+                    // Showing and rendering the HUD...
+                    if (provider.isVisible(player, mainHand, offHand) == true) {
+                        if (states[i] == null)
+                            states[i] = new HudState(acquire(provider.getBossBar()));
+                        // Rendering. Provider is responsible for skipping unchanged inputs.
+                        provider.render(player, states[i]);
+                        // Showing in case hidden.
+                        states[i].show(player);
+                    }
+                    // ...or hiding it and putting the boss bar back to the pool.
+                    else if (states[i] != null) {
+                        states[i].hide(player);
+                        release(states[i]);
+                        states[i] = null;
+                    }
+                }
+            }
+            // ...
+            return true;
+        });
+    }
+
+    @Override
+    public void unload() { /* HANDLED INSIDE LOAD */ }
+
+    @EventHandler // Clean-ups boss bar related stuff when player leaves. Apparently boss bars are untracked by the server and can be subject to memory leaks.
+    public void onPlayerQuit(final @NotNull PlayerQuitEvent event) {
+        // Marking states of the player to be released by the next cycle. Releasing them here could put boss bars back to the pool while they're still being rendered.
+        quitting.add(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Returns unused boss bar from the pool, or creates a new one if pool is empty. Returned boss bar is reset to specified properties.
+     */
+    private @NotNull BossBar acquire(final @NotNull BossBarProperties properties) {
+        final @Nullable BossBar bar = pool.poll();
+        // Creating new boss bar in case pool is empty.
+        if (bar == null)
+            return BossBar.bossBar(Component.empty(), 0.0F, properties.getColor(), properties.getOverlay());
+        // Otherwise, resetting the recycled one. Viewers are removed too, in case any were added after it was released.
+        poolSize.decrementAndGet();
+        removeViewers(bar);
+        return bar.name(Component.empty()).progress(0.0F).color(properties.getColor()).overlay(properties.getOverlay());
+    }
+
+    /**
+     * Hides boss bar associated with specified state and puts it back to the pool, unless it's full.
+     */
+    private void release(final @NotNull HudState state) {
+        // Removing all viewers of the boss bar.
+        state.hideAll();
+        // Putting the boss bar back to the pool.
+        if (poolSize.incrementAndGet() <= MAX_POOL_SIZE)
+            pool.offer(state.getBar());
+        else poolSize.decrementAndGet();
+    }
+
+    /**
+     * Hides and releases all boss bars of specified player states.
+     */
+    private void release(final @NotNull Slots slots) {
+        for (final HudState state : slots.states())
+            if (state != null)
+                release(state);
+    }
+
+    // Removes all viewers of specified boss bar.
+    private static void removeViewers(final @NotNull BossBar bar) {
+        bar.viewers().forEach(viewer -> {
+            if (viewer instanceof Audience audience)
+                bar.removeViewer(audience);
+        });
+    }
+
+    private static long gcd(final long a, final long b) {
+        return (b == 0) ? a : gcd(b, a % b);
+    }
+
+    // States of HUDs visible to a single player, along with providers these were created for.
+    private record Slots(HudProvider @NotNull [] providers, HudState @NotNull [] states) { /* DATA */ }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Tweaks (https://github.com/Grabsky/Tweaks)
+ *
+ * Copyright (C) 2024  Grabsky <michal.czopek.foss@proton.me>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License v3 as published by
+ * the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License v3 for more details.
+ */
+package cloud.grabsky.tweaks.hud;
+
+import cloud.grabsky.tweaks.configuration.PluginConfig.BossBarProperties;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Single boss bar HUD type driven by {@link HudEngine}. Providers implementing {@link org.bukkit.event.Listener} are registered along with the engine.
+ */
+public interface HudProvider {
+
+    /**
+     * Returns {@code true} if this HUD is enabled in the configuration.
+     */
+    boolean isEnabled();
+
+    /**
+     * Returns refresh rate of this HUD, in ticks.
+     */
+    long getRefreshRate();
+
+    /**
+     * Returns properties of the boss bar used by this HUD.
+     */
+    @NotNull BossBarProperties getBossBar();
+
+    /**
+     * Called on each reload, before the engine starts refreshing this HUD. Only called when HUD is enabled.
+     */
+    default void load() { /* NOTHING TO LOAD BY DEFAULT */ }
+
+    /**
+     * Returns {@code true} if this HUD should be visible to specified player. Held items are read by the engine once per cycle and passed as arguments.
+     */
+    boolean isVisible(final @NotNull Player player, final @NotNull Material mainHand, final @NotNull Material offHand);
+
+    /**
+     * Updates the boss bar of specified player. Implementations should re-render the name only when inputs stored in {@link HudState} have changed.
+     */
+    void render(final @NotNull Player player, final @NotNull HudState state);
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Tweaks (https://github.com/Grabsky/Tweaks)
+ *
+ * Copyright (C) 2024  Grabsky <michal.czopek.foss@proton.me>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License v3 as published by
+ * the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License v3 for more details.
+ */
+package cloud.grabsky.tweaks.hud;
+
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.bossbar.BossBar;
+import org.bukkit.entity.Player;
+
+import org.jetbrains.annotations.NotNull;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * Holds boss bar of a single player along with inputs it was last rendered from.
+ * Inputs are stored as primitives, so checking whether anything changed does not require building or comparing any components.
+ */
+public final class HudState {
+
+    @Getter(AccessLevel.PUBLIC)
+    private final @NotNull BossBar bar;
+
+    @Getter(AccessLevel.PUBLIC)
+    private boolean isShown = false;
+
+    // Last rendered block position.
+    private int blockX = Integer.MIN_VALUE;
+    private int blockY = Integer.MIN_VALUE;
+    private int blockZ = Integer.MIN_VALUE;
+
+    // Last rendered minute of the day.
+    private int minuteOfDay = -1;
+
+    // Last rendered biome, as interned by the BiomeCache.
+    private int biomeId = BiomeCache.UNKNOWN;
+
+    public HudState(final @NotNull BossBar bar) {
+        this.bar = bar;
+    }
+
+    /**
+     * Updates stored block position and returns {@code true} if it has changed since the last call.
+     */
+    public boolean updateBlockPosition(final int x, final int y, final int z) {
+        if (blockX == x && blockY == y && blockZ == z)
+            return false;
+        // Storing new values.
+        this.blockX = x;
+        this.blockY = y;
+        this.blockZ = z;
+        // ...
+        return true;
+    }
+
+    /**
+     * Updates stored minute of the day and returns {@code true} if it has changed since the last call.
+     */
+    public boolean updateMinuteOfDay(final int minuteOfDay) {
+        if (this.minuteOfDay == minuteOfDay)
+            return false;
+        // Storing new value.
+        this.minuteOfDay = minuteOfDay;
+        // ...
+        return true;
+    }
+
+    /**
+     * Updates stored biome and returns {@code true} if it has changed since the last call.
+     */
+    public boolean updateBiome(final int biomeId) {
+        if (this.biomeId == biomeId)
+            return false;
+        // Storing new value.
+        this.biomeId = biomeId;
+        // ...
+        return true;
+    }
+
+    /**
+     * Shows the boss bar to specified player, unless it's already shown.
+     */
+    public void show(final @NotNull Player player) {
+        if (isShown == false) {
+            bar.addViewer(player);
+            isShown = true;
+        }
+    }
+
+    /**
+     * Hides the boss bar from specified player, unless it's already hidden.
+     */
+    public void hide(final @NotNull Player player) {
+        if (isShown == true) {
+            bar.removeViewer(player);
+            isShown = false;
+        }
+    }
+
+    /**
+     * Hides the boss bar from all of its viewers.
+     */
+    public void hideAll() {
+        bar.viewers().forEach(viewer -> {
+            // Trying to cast to an Audience, which is very unlikely to fail.
+            if (viewer instanceof Audience audience)
+                // Removing this audience from viewers.
+                bar.removeViewer(audience);
+        });
+        isShown = false;
+    }
+
+}
@@ -19,8 +19,9 @@ import cloud.grabsky.bedrock.helpers.Conditions;
 import cloud.grabsky.tweaks.Module;
 import cloud.grabsky.tweaks.Tweaks;
 import cloud.grabsky.tweaks.configuration.PluginConfig;
+import cloud.grabsky.tweaks.utils.ComponentTemplate;
 import cloud.grabsky.tweaks.utils.Extensions;
-import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.Component;
 import org.bukkit.Bukkit;
 import org.bukkit.DyeColor;
 import org.bukkit.GameMode;
@@ -63,8 +64,9 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.SpawnEggMeta;
 import org.bukkit.persistence.PersistentDataType;
 
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -83,11 +85,33 @@ public final class BasketHandler implements Module, Listener {
 
     private static final NamespacedKey DATA_KEY = new NamespacedKey("tweaks", "entity_data");
 
+    // Placeholders that can be used inside additional lore formats. Order of this array defines the order of template slots.
+    private static final String[] LORE_SLOTS = { "variant", "style", "color", "type", "profession", "gene" };
+
+    private static final int SLOT_VARIANT = 0;
+    private static final int SLOT_STYLE = 1;
+    private static final int SLOT_COLOR = 2;
+    private static final int SLOT_TYPE = 3;
+    private static final int SLOT_PROFESSION = 4;
+    private static final int SLOT_GENE = 5;
+
+    // Parsed additional lore formats. Compiled once on each reload.
+    private final Map<NamespacedKey, List<ComponentTemplate>> loreTemplates = new HashMap<>();
+
     @Override
     public void load() {
-        if (PluginConfig.ENABLED_MODULES_BASKET == true)
-            // Registering events.
-            plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        // Clearing previously parsed lore formats.
+        loreTemplates.clear();
+        // Returning in case module is disabled.
+        if (PluginConfig.ENABLED_MODULES_BASKET == false)
+            return;
+        // Parsing additional lore formats.
+        PluginConfig.BASKET_SETTINGS_ADDITIONAL_LORE_FORMAT.forEach((entity, format) -> {
+            if (format != null && format.isEmpty() == false)
+                loreTemplates.put(entity, format.stream().map(line -> ComponentTemplate.of(line, LORE_SLOTS)).toList());
+        });
+        // Registering events.
+        plugin.getServer().getPluginManager().registerEvents(this, plugin);
     }
 
     @Override
@@ -126,10 +150,10 @@ public final class BasketHandler implements Module, Listener {
                                 meta.setEnchantmentGlintOverride(true);
                             // Applying additional lore if specified.
                             if (PluginConfig.BASKET_SETTINGS_APPLY_ADDITIONAL_LORE) {
-                                final @Nullable List<String> additionalLore = getAdditionalLore(entity);
+                                final @Nullable List<Component> additionalLore = getAdditionalLore(entity);
                                 // If available, applying additional information to the item lore.
                                 if (additionalLore != null && additionalLore.isEmpty() == false)
-                                    meta.lore(additionalLore.stream().map(str -> ComponentBuilder.EMPTY_NO_ITALIC.append(MiniMessage.miniMessage().deserialize(str))).toList());
+                                    meta.lore(additionalLore.stream().map(ComponentBuilder.EMPTY_NO_ITALIC::append).toList());
                             }
                         });
                         // Getting location of the entity. Might be used in a later step.
@@ -250,78 +274,57 @@ public final class BasketHandler implements Module, Listener {
     /* HELPER METHODS */
 
     // NOTE: 1.21.5 brings a lot of new mob variants that need special care.
-    private static @Nullable List<String> getAdditionalLore(final @NotNull Mob mob) {
-        final NamespacedKey entity = mob.getType().getKey();
-        final @Nullable List<String> additionalLoreFormat = PluginConfig.BASKET_SETTINGS_ADDITIONAL_LORE_FORMAT.getOrDefault(entity, Collections.emptyList());
+    private @Nullable List<Component> getAdditionalLore(final @NotNull Mob mob) {
+        final @Nullable List<ComponentTemplate> templates = loreTemplates.get(mob.getType().getKey());
         // Returning if no additional lore format was specified for this entity.
-        if (additionalLoreFormat == null || additionalLoreFormat.isEmpty() == true)
+        if (templates == null || templates.isEmpty() == true)
             return null;
-        // Replacing placeholders with actual values. Switch must be used because variations are currently not standardized.
-        return switch (mob) {
+        // Preparing slot values. Unused slots are left empty.
+        final Component[] values = new Component[LORE_SLOTS.length];
+        // Filling slots with actual values. Switch must be used because variations are currently not standardized.
+        switch (mob) {
             // AXOLOTL
-            case Axolotl axolotl -> additionalLoreFormat.stream()
-                    .map(format -> format.replace("<variant>", "<lang:basket.axolotl_variant." + axolotl.getVariant().name().toLowerCase() + ">"))
-                    .toList();
+            case Axolotl axolotl -> values[SLOT_VARIANT] = Component.translatable("basket.axolotl_variant." + axolotl.getVariant().name().toLowerCase());
             // HORSE
-            case Horse horse -> additionalLoreFormat.stream()
-                    .map(format -> format.replace("<style>", "<lang:basket.horse_style." + horse.getStyle().name().toLowerCase() + ">"))
-                    .map(format -> format.replace("<color>", "<lang:basket.horse_color." + horse.getColor().name().toLowerCase() + ">"))
-                    .toList();
+            case Horse horse -> {
+                values[SLOT_STYLE] = Component.translatable("basket.horse_style." + horse.getStyle().name().toLowerCase());
+                values[SLOT_COLOR] = Component.translatable("basket.horse_color." + horse.getColor().name().toLowerCase());
+            }
             // LLAMA
-            case Llama llama -> additionalLoreFormat.stream()
-                    .map(format -> format.replace("<color>", "<lang:basket.llama_color." + llama.getColor().name().toLowerCase() + ">"))
-                    .toList();
+            case Llama llama -> values[SLOT_COLOR] = Component.translatable("basket.llama_color." + llama.getColor().name().toLowerCase());
             // PARROT
-            case Parrot parrot -> additionalLoreFormat.stream()
-                    .map(format -> format.replace("<variant>", "<lang:basket.parrot_variant." + parrot.getVariant().name().toLowerCase() + ">"))
-                    .toList();
+            case Parrot parrot -> values[SLOT_VARIANT] = Component.translatable("basket.parrot_variant." + parrot.getVariant().name().toLowerCase());
             // RABBIT
-            case Rabbit rabbit -> additionalLoreFormat.stream()
-                    .map(format -> format.replace("<type>", "<lang:basket.rabbit_type." + rabbit.getRabbitType().name().toLowerCase() + ">"))
-                    .toList();
+            case Rabbit rabbit -> values[SLOT_TYPE] = Component.translatable("basket.rabbit_type." + rabbit.getRabbitType().name().toLowerCase());
             // VILLAGER
-            case Villager villager -> additionalLoreFormat.stream()
-                    .map(format -> format.replace("<type>", "<lang:basket.villager_type." + villager.getVillagerType().getKey().getKey() + ">"))
-                    .map(format -> format.replace("<profession>", "<lang:basket.villager_profession." + villager.getProfession().getKey().getKey() + ">"))
-                    .toList();
+            case Villager villager -> {
+                values[SLOT_TYPE] = Component.translatable("basket.villager_type." + villager.getVillagerType().getKey().getKey());
+                values[SLOT_PROFESSION] = Component.translatable("basket.villager_profession." + villager.getProfession().getKey().getKey());
+            }
             // CAT
-            case Cat cat -> additionalLoreFormat.stream()
-                    .map(format -> format.replace("<type>", "<lang:basket.cat_type." + cat.getCatType().getKey().getKey() + ">"))
-                    .toList();
+            case Cat cat -> values[SLOT_TYPE] = Component.translatable("basket.cat_type." + cat.getCatType().getKey().getKey());
             // FOX
-            case Fox fox -> additionalLoreFormat.stream()
-                    .map(format -> format.replace("<type>", "<lang:basket.fox_type." + fox.getFoxType().name().toLowerCase() + ">"))
-                    .toList();
+            case Fox fox -> values[SLOT_TYPE] = Component.translatable("basket.fox_type." + fox.getFoxType().name().toLowerCase());
             // PANDA
-            case Panda panda -> additionalLoreFormat.stream()
-                    .map(format -> format.replace("<gene>", "<lang:basket.panda_gene." + panda.getMainGene().name().toLowerCase() + ">"))
-                    .toList();
+            case Panda panda -> values[SLOT_GENE] = Component.translatable("basket.panda_gene." + panda.getMainGene().name().toLowerCase());
             // FROG
-            case Frog frog -> additionalLoreFormat.stream()
-                    .map(format -> format.replace("<variant>", "<lang:basket.frog_variant." + frog.getVariant().getKey().getKey() + ">"))
-                    .toList();
+            case Frog frog -> values[SLOT_VARIANT] = Component.translatable("basket.frog_variant." + frog.getVariant().getKey().getKey());
             // SHEEP
-            case Sheep sheep -> additionalLoreFormat.stream()
-                    .map(format -> format.replace("<color>", "<lang:basket.sheep_color." + Conditions.requirePresent(sheep.getColor(), DyeColor.WHITE).name().toLowerCase() + ">"))
-                    .toList();
+            case Sheep sheep -> values[SLOT_COLOR] = Component.translatable("basket.sheep_color." + Conditions.requirePresent(sheep.getColor(), DyeColor.WHITE).name().toLowerCase());
             // WOLF
-            case Wolf wolf -> additionalLoreFormat.stream()
-                    .map(format -> format.replace("<variant>", "<lang:basket.wolf_variant." + wolf.getVariant().getKey().getKey() + ">"))
-                    .toList();
+            case Wolf wolf -> values[SLOT_VARIANT] = Component.translatable("basket.wolf_variant." + wolf.getVariant().getKey().getKey());
             // COW
-            case Cow cow -> additionalLoreFormat.stream()
-                    .map(format -> format.replace("<variant>", "<lang:basket.cow_variant." + cow.getVariant().getKey().getKey() + ">"))
-                    .toList();
+            case Cow cow -> values[SLOT_VARIANT] = Component.translatable("basket.cow_variant." + cow.getVariant().getKey().getKey());
             // PIG
-            case Pig pig -> additionalLoreFormat.stream()
-                    .map(format -> format.replace("<variant>", "<lang:basket.pig_variant." + pig.getVariant().getKey().getKey() + ">"))
-                    .toList();
+            case Pig pig -> values[SLOT_VARIANT] = Component.translatable("basket.pig_variant." + pig.getVariant().getKey().getKey());
             // CHICKEN
-            case Chicken chicken -> additionalLoreFormat.stream()
-                    .map(format -> format.replace("<variant>", "<lang:basket.chicken_variant." + chicken.getVariant().getKey().getKey() + ">"))
-                    .toList();
+            case Chicken chicken -> values[SLOT_VARIANT] = Component.translatable("basket.chicken_variant." + chicken.getVariant().getKey().getKey());
             // NO VARIANTS
-            default -> null;
-        };
+            default -> {
+                return null;
+            }
+        }
+        // Rendering each line of the lore.
+        return templates.stream().map(template -> template.render(values)).toList();
     }
 }
\ No newline at end of file
@@ -20,6 +20,7 @@ import cloud.grabsky.bedrock.util.Interval;
 import cloud.grabsky.tweaks.Module;
 import cloud.grabsky.tweaks.Tweaks;
 import cloud.grabsky.tweaks.configuration.PluginConfig;
+import cloud.grabsky.tweaks.utils.ComponentTemplate;
 import cloud.grabsky.tweaks.utils.Extensions;
 import cloud.grabsky.tweaks.utils.TriConsumer;
 import cloud.grabsky.tweaks.utils.Utilities;
@@ -33,6 +34,7 @@ import com.github.retrooper.packetevents.protocol.player.InteractionHand;
 import com.github.retrooper.packetevents.wrapper.play.client.WrapperPlayClientInteractEntity;
 import io.github.retrooper.packetevents.util.SpigotConversionUtil;
 import io.papermc.paper.datacomponent.DataComponentTypes;
+import net.kyori.adventure.text.Component;
 import org.bukkit.Location;
 import org.bukkit.NamespacedKey;
 import org.bukkit.attribute.Attribute;
@@ -110,6 +112,9 @@ public final class ScrollItem implements Module, Listener, PacketListener {
     // Repeating task which updates cooldown of scrolls in player inventories.
     private @Nullable BukkitTask task = null;
 
+    // Parsed cooldown message. Compiled once on each reload.
+    private @NotNull ComponentTemplate onCooldownMessage = ComponentTemplate.EMPTY;
+
     @Override
     public void load() {
         // Clearing handlers list.
@@ -122,6 +127,8 @@ public final class ScrollItem implements Module, Listener, PacketListener {
             task.cancel();
         // Starting the module, if enabled in config.
         if (PluginConfig.ENABLED_MODULES_SCROLLS == true) {
+            // Parsing the cooldown message.
+            this.onCooldownMessage = ComponentTemplate.of(PluginConfig.TELEPORTATION_SETTINGS_LANG_TELEPORT_FAILURE_ON_COOLDOWN, "cooldown_left");
             // Registering events. Currently only the PlayerInventoryEvent is being listened to.
             plugin.getServer().getPluginManager().registerEvents(this, plugin);
             // Registering listeners for packet events.
@@ -233,9 +240,7 @@ public final class ScrollItem implements Module, Listener, PacketListener {
                     return;
                 }
                 // Sending failure message to the player. Player is currently on cooldown.
-                Message.of(PluginConfig.TELEPORTATION_SETTINGS_LANG_TELEPORT_FAILURE_ON_COOLDOWN)
-                        .placeholder("cooldown_left", cooldownLeft.toString())
-                        .sendActionBar(player);
+                Message.of(onCooldownMessage.render(Component.text(cooldownLeft.toString()))).sendActionBar(player);
             }
         }
     }
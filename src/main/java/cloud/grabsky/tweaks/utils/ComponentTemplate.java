@@ -0,0 +1,208 @@
+/*
+ * Tweaks (https://github.com/Grabsky/Tweaks)
+ *
+ * Copyright (C) 2024  Grabsky <michal.czopek.foss@proton.me>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License v3 as published by
+ * the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License v3 for more details.
+ */
+package cloud.grabsky.tweaks.utils;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.ComponentIteratorFlag;
+import net.kyori.adventure.text.ComponentIteratorType;
+import net.kyori.adventure.text.ComponentLike;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
+import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * MiniMessage string parsed once into a tree with placeholder slots. Rendering only fills in the slots, leaving the rest of the tree untouched.
+ * Templates are cached and shared across modules. Cache is invalidated on each plugin reload.
+ */
+public final class ComponentTemplate {
+
+    // Holds all templates parsed since the last reload.
+    private static final Map<Key, ComponentTemplate> CACHE = new ConcurrentHashMap<>();
+
+    // Prefix of the marker used to find placeholder slots inside parsed tree. Stored both as content and insertion, so it's never merged with surrounding text.
+    private static final String SLOT_MARKER = "\u0000tweaks:slot/";
+
+    public static final ComponentTemplate EMPTY = parse(new Key("", List.of()));
+
+    @Getter(AccessLevel.PUBLIC)
+    private final @NotNull String text;
+
+    @Getter(AccessLevel.PUBLIC)
+    private final @NotNull List<String> slots;
+
+    // Root of the compiled tree. Null when slots could not be compiled, in which case template falls back to parsing on each render.
+    private final @Nullable Node root;
+
+    private ComponentTemplate(final @NotNull String text, final @NotNull List<String> slots, final @Nullable Node root) {
+        this.text = text;
+        this.slots = slots;
+        this.root = root;
+    }
+
+    /**
+     * Returns cached {@link ComponentTemplate} for specified MiniMessage string, parsing it in case it's not cached yet.
+     * Each name in {@code slots} corresponds to a {@code <name>} placeholder, and its position to the index of value passed to {@link #render(ComponentLike...)}.
+     */
+    public static @NotNull ComponentTemplate of(final @NotNull String text, final @NotNull String... slots) {
+        return CACHE.computeIfAbsent(new Key(text, List.of(slots)), ComponentTemplate::parse);
+    }
+
+    /**
+     * Clears all cached templates. Should be called before modules are reloaded.
+     */
+    public static void invalidateAll() {
+        CACHE.clear();
+    }
+
+    /**
+     * Renders this template with specified slot values. Values are matched with slots by their index. Missing or {@code null} values are rendered as empty components.
+     */
+    public @NotNull Component render(final @Nullable ComponentLike... values) {
+        // Rendering the compiled tree. This is what happens in almost all cases.
+        if (root != null)
+            return root.render(values);
+        // Falling back to regular parsing otherwise.
+        final TagResolver.Builder resolver = TagResolver.builder();
+        for (int i = 0; i < slots.size(); i++)
+            resolver.resolver(Placeholder.component(slots.get(i), valueAt(values, i)));
+        // ...
+        return MiniMessage.miniMessage().deserialize(text, resolver.build());
+    }
+
+
+    /* PARSING */
+
+    private static @NotNull ComponentTemplate parse(final @NotNull Key key) {
+        final TagResolver.Builder resolver = TagResolver.builder();
+        // Resolving each placeholder to a marker component, which is then replaced with a slot.
+        for (int i = 0; i < key.slots().size(); i++)
+            resolver.resolver(Placeholder.component(key.slots().get(i), Component.text(SLOT_MARKER + i).insertion(SLOT_MARKER + i)));
+        // Parsing the text exactly once.
+        final Component parsed = MiniMessage.miniMessage().deserialize(key.text(), resolver.build());
+        // Compiling the tree and counting slots that were found along the way.
+        final int[] compiled = new int[1];
+        final Node root = compile(parsed, compiled);
+        // Counting all markers, including ones that ended up inside translation arguments or hover events, which are not supported by compiled tree.
+        int total = 0;
+        for (final Component component : parsed.iterable(ComponentIteratorType.DEPTH_FIRST, ComponentIteratorFlag.INCLUDE_TRANSLATABLE_COMPONENT_ARGUMENTS, ComponentIteratorFlag.INCLUDE_HOVER_SHOW_TEXT_COMPONENT))
+            if (component instanceof TextComponent text)
+                total += countMarkers(text.content());
+        // Falling back to parsing on each render in case some slots could not be compiled.
+        return new ComponentTemplate(key.text(), key.slots(), (total == compiled[0]) ? root : null);
+    }
+
+    private static @NotNull Node compile(final @NotNull Component component, final int @NotNull [] compiled) {
+        // Replacing marker components with slots.
+        if (component instanceof TextComponent text && text.insertion() != null && text.insertion().startsWith(SLOT_MARKER) == true) {
+            final int index = Integer.parseInt(text.insertion().substring(SLOT_MARKER.length()));
+            // Adjacent markers of the same placeholder can be merged into one component during compaction.
+            final int repeat = countMarkers(text.content());
+            // ...
+            compiled[0] += repeat;
+            return new Slot(index, repeat, text.style().edit(style -> style.insertion(null)));
+        }
+        // Returning constant node for leaves.
+        if (component.children().isEmpty() == true)
+            return new Constant(component);
+        // Compiling children.
+        final Node[] children = new Node[component.children().size()];
+        boolean isConstant = true;
+        for (int i = 0; i < children.length; i++) {
+            children[i] = compile(component.children().get(i), compiled);
+            if (children[i] instanceof Constant == false)
+                isConstant = false;
+        }
+        // Returning constant node for sub-trees that contain no slots, so they can be re-used as they are.
+        return (isConstant == true) ? new Constant(component) : new Parent(component, children);
+    }
+
+    private static int countMarkers(final @NotNull String content) {
+        int count = 0;
+        for (int i = content.indexOf(SLOT_MARKER); i != -1; i = content.indexOf(SLOT_MARKER, i + SLOT_MARKER.length()))
+            count++;
+        return count;
+    }
+
+    private static @NotNull Component valueAt(final @Nullable ComponentLike[] values, final int index) {
+        return (values != null && index < values.length && values[index] != null) ? values[index].asComponent() : Component.empty();
+    }
+
+
+    /* TREE */
+
+    private record Key(@NotNull String text, @NotNull List<String> slots) { /* KEY */ }
+
+    private sealed interface Node permits Constant, Slot, Parent {
+
+        @NotNull Component render(final @Nullable ComponentLike[] values);
+
+    }
+
+    private record Constant(@NotNull Component component) implements Node {
+
+        @Override
+        public @NotNull Component render(final @Nullable ComponentLike[] values) {
+            return component;
+        }
+
+    }
+
+    private record Slot(int index, int repeat, @NotNull Style style) implements Node {
+
+        @Override
+        public @NotNull Component render(final @Nullable ComponentLike[] values) {
+            final Component value = valueAt(values, index);
+            // Applying style the placeholder inherited from the template.
+            final Component styled = (style.isEmpty() == true) ? value : value.applyFallbackStyle(style);
+            // Returning single value in almost all cases.
+            if (repeat == 1)
+                return styled;
+            // Otherwise, repeating the value as many times as it was present in the template.
+            final List<Component> repeated = new ArrayList<>(repeat);
+            for (int i = 0; i < repeat; i++)
+                repeated.add(styled);
+            return Component.empty().children(repeated);
+        }
+
+    }
+
+    private record Parent(@NotNull Component shell, @NotNull Node[] children) implements Node {
+
+        @Override
+        public @NotNull Component render(final @Nullable ComponentLike[] values) {
+            final List<Component> rendered = new ArrayList<>(children.length);
+            // Rendering each child. Constant children are returned as-is.
+            for (final Node child : children)
+                rendered.add(child.render(values));
+            // Returning the shell with rendered children.
+            return shell.children(rendered);
+        }
+
+    }
+
+}
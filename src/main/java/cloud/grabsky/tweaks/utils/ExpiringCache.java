@@ -0,0 +1,108 @@
+/*
+ * Tweaks (https://github.com/Grabsky/Tweaks)
+ *
+ * Copyright (C) 2024  Grabsky <michal.czopek.foss@proton.me>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License v3 as published by
+ * the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License v3 for more details.
+ */
+package cloud.grabsky.tweaks.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Concurrent cache in which each entry expires after a fixed time since it was last written. Size is bounded; once the limit is reached,
+ * expired entries are purged, and if that's not enough, a fraction of entries that are closest to expiring is evicted. Can be used from any thread.
+ */
+public final class ExpiringCache<K, V> {
+
+    private final int maxSize;
+    private final long ttl;
+
+    // Fraction of entries evicted at once when the limit is reached, so the cost of finding them is shared by following writes.
+    private static final int EVICTION_DIVISOR = 8;
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Creates new {@link ExpiringCache} holding at most {@code maxSize} entries, each expiring {@code ttl} milliseconds after it was written.
+     */
+    public ExpiringCache(final int maxSize, final long ttl) {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Returns value associated with specified key, or {@code null} if there is none or it has expired.
+     */
+    public @Nullable V get(final @NotNull K key) {
+        final @Nullable Entry<V> entry = entries.get(key);
+        // Returning null in case there is no entry.
+        if (entry == null)
+            return null;
+        // Removing the entry in case it has expired.
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        // ...
+        return entry.value;
+    }
+
+    /**
+     * Associates specified value with specified key, resetting its expiration time.
+     */
+    public void put(final @NotNull K key, final @NotNull V value) {
+        final long now = System.currentTimeMillis();
+        // Making room for the entry in case the limit has been reached.
+        if (entries.size() >= maxSize && entries.containsKey(key) == false) {
+            entries.values().removeIf(entry -> entry.expiresAt <= now);
+            // Evicting entries that are closest to expiring (least recently written) in case there were not enough expired entries.
+            if (entries.size() >= maxSize)
+                evictOldest(Math.max(1, maxSize / EVICTION_DIVISOR));
+        }
+        // ...
+        entries.put(key, new Entry<>(value, now + ttl));
+    }
+
+    /**
+     * Removes all entries with keys matching specified predicate.
+     */
+    public void removeIf(final @NotNull Predicate<K> predicate) {
+        entries.keySet().removeIf(predicate);
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /* HELPER METHODS */
+
+    // Evicts approximately specified number of entries with the earliest expiration time.
+    private void evictOldest(final int count) {
+        final long[] expirations = entries.values().stream().mapToLong(Entry::expiresAt).sorted().toArray();
+        // Returning in case cache was cleared in the meantime.
+        if (expirations.length == 0)
+            return;
+        // Evicting entries expiring no later than the last one to evict.
+        final long threshold = expirations[Math.min(count, expirations.length) - 1];
+        entries.values().removeIf(entry -> entry.expiresAt <= threshold);
+    }
+
+    private record Entry<V>(@NotNull V value, long expiresAt) { /* DATA */ }
+
+}
@@ -26,13 +26,10 @@ import org.bukkit.Registry;
 import org.bukkit.Tag;
 import org.bukkit.block.Block;
 import org.bukkit.enchantments.Enchantment;
-import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
-import java.util.Iterator;
-import java.util.List;
 
 import org.jetbrains.annotations.NotNull;
 
@@ -63,22 +60,6 @@ public final class Extensions {
         return (ench != null) ? item.getEnchantmentLevel(ench) : 0;
     }
 
-    /**
-     * Returns {@code true} if inventory have space for this item, {@code false} otherwise. Items are compared by type and amount.
-     */
-    public static boolean hasSpace(final @NotNull Inventory inventory, final @NotNull ItemStack item) {
-        if (inventory.firstEmpty() == -1) {
-            final Iterator<ItemStack> iterator = List.of(inventory.getStorageContents()).iterator();
-            while (iterator.hasNext() == true) {
-                final ItemStack next = iterator.next();
-                if (next.getType() == item.getType() && next.getAmount() + item.getAmount() <= next.getMaxStackSize())
-                    return true;
-            }
-            return false;
-        }
-        return true;
-    }
-
     public static void showRichTitle(final @NotNull Audience audience, final @NotNull Component title, final @NotNull Component subtitle, final long fadeInTicks, final long stayTicks, final long fadeOutTicks) {
         audience.showTitle(
                 Title.title(title, subtitle, Title.Times.times(
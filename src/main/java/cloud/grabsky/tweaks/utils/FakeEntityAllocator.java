@@ -0,0 +1,69 @@
+/*
+ * Tweaks (https://github.com/Grabsky/Tweaks)
+ *
+ * Copyright (C) 2024  Grabsky <michal.czopek.foss@proton.me>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License v3 as published by
+ * the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License v3 for more details.
+ */
+package cloud.grabsky.tweaks.utils;
+
+import org.bukkit.Bukkit;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Allocates identities of short-lived, client-side only entities, such as items spawned for pickup animations.
+ * <ul>
+ *     <li>Entity ids are reserved from the server once, on creation, and then handed out in a round-robin manner.
+ *     Ring should be large enough for an id to not be re-used while previous entity is still being animated by the client.</li>
+ *     <li>Unique ids are generated from a counter, so no {@link java.security.SecureRandom} is involved.</li>
+ * </ul>
+ * Once created, allocator can be used from any thread.
+ */
+public final class FakeEntityAllocator {
+
+    private final int[] ids;
+    private final AtomicInteger cursor = new AtomicInteger(0);
+
+    private final long mostSigBits;
+    private final AtomicLong counter = new AtomicLong(0L);
+
+    /**
+     * Creates new {@link FakeEntityAllocator} with specified number of reserved entity ids. Must be called on the main thread.
+     */
+    public FakeEntityAllocator(final int size) {
+        this.ids = new int[size];
+        // Reserving entity ids, so they never collide with real entities.
+        for (int i = 0; i < size; i++)
+            ids[i] = Bukkit.getUnsafe().nextEntityId();
+        // Randomizing most significant bits once, with version bits set to 4.
+        this.mostSigBits = (ThreadLocalRandom.current().nextLong() & ~0xF000L) | 0x4000L;
+    }
+
+    /**
+     * Returns next reserved entity id.
+     */
+    public int nextId() {
+        return ids[Math.floorMod(cursor.getAndIncrement(), ids.length)];
+    }
+
+    /**
+     * Returns next unique id. Least significant bits are taken from a counter, with variant bits set to IETF.
+     */
+    public @NotNull UUID nextUniqueId() {
+        return new UUID(mostSigBits, (counter.incrementAndGet() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L);
+    }
+
+}
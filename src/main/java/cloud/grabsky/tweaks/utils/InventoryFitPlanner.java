@@ -0,0 +1,233 @@
+/*
+ * Tweaks (https://github.com/Grabsky/Tweaks)
+ *
+ * Copyright (C) 2024  Grabsky <michal.czopek.foss@proton.me>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License v3 as published by
+ * the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License v3 for more details.
+ */
+package cloud.grabsky.tweaks.utils;
+
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Plans insertion of multiple items into an {@link Inventory} against a single snapshot of its storage contents.
+ * Items are merged into similar stacks first, and then put into empty slots, the same way {@link Inventory#addItem(ItemStack...)} does.
+ * Nothing is written to the inventory until {@link #apply()} is called, and only slots that were changed are written.
+ * <p>
+ * Planner can be kept across multiple events (for example, for the rest of a tick). In case any of the planned slots was changed
+ * in the inventory in the meantime, all planned operations are planned again against actual contents on apply.
+ */
+public final class InventoryFitPlanner {
+
+    private final @NotNull Inventory inventory;
+
+    // Snapshot of the storage contents. Slots are cloned before they're modified, as returned items may mirror the inventory.
+    private ItemStack[] contents;
+    private final boolean[] changed;
+
+    // Copies of slots as they were before first change. Used to detect changes made to the inventory after the snapshot was taken.
+    private final ItemStack[] originals;
+
+    private boolean isChanged = false;
+
+    // Operations planned since the last apply. Planned again in case inventory was changed after the snapshot was taken.
+    private final List<Operation> operations = new ArrayList<>();
+
+    private InventoryFitPlanner(final @NotNull Inventory inventory) {
+        this.inventory = inventory;
+        this.contents = inventory.getStorageContents();
+        this.changed = new boolean[contents.length];
+        this.originals = new ItemStack[contents.length];
+    }
+
+    /**
+     * Creates and returns new {@link InventoryFitPlanner} for specified inventory. Storage contents are copied once, at this point.
+     */
+    public static @NotNull InventoryFitPlanner of(final @NotNull Inventory inventory) {
+        return new InventoryFitPlanner(inventory);
+    }
+
+    /**
+     * Plans insertion of as much of specified item as possible and returns the amount that fits. Specified item is not modified.
+     */
+    public int fit(final @NotNull ItemStack item) {
+        final int fitted = plan(item);
+        // Remembering the operation, so it can be planned again if needed.
+        if (fitted > 0)
+            operations.add(new Fit(item.asQuantity(fitted)));
+        // ...
+        return fitted;
+    }
+
+    /**
+     * Plans crafting of items similar to specified ingredient into specified result, at specified ratio, and returns number of crafted items.
+     * No more than {@code limit} ingredients are used, so items that were in the inventory before are not crafted.
+     * Ingredients are taken from the last slots first. Crafts that would not fit are not performed.
+     */
+    public int compact(final @NotNull ItemStack ingredient, final @NotNull ItemStack result, final int ratio, final int limit) {
+        final int crafted = craft(ingredient, result, ratio, limit);
+        // Remembering the operation, so it can be planned again if needed.
+        if (crafted > 0)
+            operations.add(new Compact(ingredient, result, ratio, limit));
+        // ...
+        return crafted;
+    }
+
+    /**
+     * Writes all planned changes to the inventory and returns items that no longer fit. Only slots that were changed are written.
+     * Returned list is empty, unless inventory was modified by something else after the snapshot was taken.
+     */
+    public @NotNull List<ItemStack> apply() {
+        if (isChanged == false)
+            return List.of();
+        final List<ItemStack> leftovers = new ArrayList<>(0);
+        // Planning everything again against actual contents in case any of the planned slots was changed in the meantime.
+        if (isConflicting() == true) {
+            this.contents = inventory.getStorageContents();
+            this.reset();
+            // Planning each operation again. Parts of items that no longer fit are returned.
+            for (final Operation operation : operations) {
+                switch (operation) {
+                    case Fit fit -> {
+                        final int fitted = plan(fit.item());
+                        if (fitted < fit.item().getAmount())
+                            leftovers.add(fit.item().asQuantity(fit.item().getAmount() - fitted));
+                    }
+                    case Compact compact -> craft(compact.ingredient(), compact.result(), compact.ratio(), compact.limit());
+                }
+            }
+        }
+        // Writing changed slots. These are guaranteed to be the same as in the snapshot at this point.
+        for (int slot = 0; slot < contents.length; slot++)
+            if (changed[slot] == true)
+                inventory.setItem(slot, contents[slot]);
+        // Resetting, so the planner can be applied again after planning more items.
+        this.reset();
+        operations.clear();
+        // ...
+        return leftovers;
+    }
+
+    /* HELPER METHODS */
+
+    // Plans insertion of as much of specified item as possible and returns the amount that fits.
+    private int plan(final @NotNull ItemStack item) {
+        if (item.isEmpty() == true)
+            return 0;
+        final int maxStackSize = item.getMaxStackSize();
+        int remaining = item.getAmount();
+        // Merging into similar stacks that are not full.
+        for (int slot = 0; slot < contents.length && remaining > 0; slot++) {
+            final @Nullable ItemStack existing = contents[slot];
+            // Skipping empty slots, full stacks and items that cannot be stacked together.
+            if (existing == null || existing.isEmpty() == true || existing.getAmount() >= maxStackSize || existing.isSimilar(item) == false)
+                continue;
+            // Moving as much as possible into this stack.
+            final int moved = Math.min(remaining, maxStackSize - existing.getAmount());
+            editable(slot).setAmount(existing.getAmount() + moved);
+            remaining -= moved;
+        }
+        // Putting the rest into empty slots.
+        for (int slot = 0; slot < contents.length && remaining > 0; slot++) {
+            final @Nullable ItemStack existing = contents[slot];
+            // Skipping occupied slots.
+            if (existing != null && existing.isEmpty() == false)
+                continue;
+            // Moving as much as possible into this slot.
+            final int moved = Math.min(remaining, maxStackSize);
+            if (changed[slot] == false)
+                originals[slot] = null;
+            contents[slot] = item.asQuantity(moved);
+            changed[slot] = isChanged = true;
+            remaining -= moved;
+        }
+        // ...
+        return item.getAmount() - remaining;
+    }
+
+    // Plans crafting of items similar to specified ingredient into specified result and returns number of crafted items.
+    private int craft(final @NotNull ItemStack ingredient, final @NotNull ItemStack result, final int ratio, final int limit) {
+        // Counting ingredients.
+        int total = 0;
+        for (final @Nullable ItemStack existing : contents)
+            if (existing != null && existing.isEmpty() == false && existing.isSimilar(ingredient) == true)
+                total += existing.getAmount();
+        // Returning in case there's not enough ingredients.
+        final int crafts = Math.min(total, limit) / ratio;
+        if (crafts == 0)
+            return 0;
+        // Taking ingredients, starting from the last slots.
+        int remaining = crafts * ratio;
+        for (int slot = contents.length - 1; slot >= 0 && remaining > 0; slot--) {
+            final @Nullable ItemStack existing = contents[slot];
+            // Skipping empty slots and items that are not similar to the ingredient.
+            if (existing == null || existing.isEmpty() == true || existing.isSimilar(ingredient) == false)
+                continue;
+            // Taking as much as possible from this stack.
+            final int taken = Math.min(remaining, existing.getAmount());
+            editable(slot).setAmount(existing.getAmount() - taken);
+            remaining -= taken;
+        }
+        // Putting crafted items into the inventory.
+        final int crafted = plan(result.asQuantity(crafts));
+        // Putting back ingredients of crafts that did not fit. These always fit, as the space was just freed.
+        if (crafted < crafts)
+            plan(ingredient.asQuantity((crafts - crafted) * ratio));
+        // ...
+        return crafted;
+    }
+
+    // Returns true if any of the planned slots was changed in the inventory after the snapshot was taken.
+    private boolean isConflicting() {
+        for (int slot = 0; slot < contents.length; slot++) {
+            if (changed[slot] == false)
+                continue;
+            final @Nullable ItemStack original = originals[slot];
+            final @Nullable ItemStack current = inventory.getItem(slot);
+            // Comparing the slot with its copy from the snapshot.
+            if ((original == null) ? (current != null && current.isEmpty() == false) : original.equals(current) == false)
+                return true;
+        }
+        return false;
+    }
+
+    // Marks all slots as unchanged.
+    private void reset() {
+        Arrays.fill(changed, false);
+        Arrays.fill(originals, null);
+        isChanged = false;
+    }
+
+    // Returns item in specified slot, cloning it first in case it hasn't been modified yet.
+    @SuppressWarnings("DataFlowIssue")
+    private @NotNull ItemStack editable(final int slot) {
+        if (changed[slot] == false) {
+            originals[slot] = contents[slot].clone();
+            contents[slot] = contents[slot].clone();
+            changed[slot] = isChanged = true;
+        }
+        return contents[slot];
+    }
+
+    private sealed interface Operation permits Fit, Compact { /* MARKER */ }
+
+    private record Fit(@NotNull ItemStack item) implements Operation { /* DATA */ }
+
+    private record Compact(@NotNull ItemStack ingredient, @NotNull ItemStack result, int ratio, int limit) implements Operation { /* DATA */ }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Tweaks (https://github.com/Grabsky/Tweaks)
+ *
+ * Copyright (C) 2024  Grabsky <michal.czopek.foss@proton.me>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License v3 as published by
+ * the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License v3 for more details.
+ */
+package cloud.grabsky.tweaks.utils;
+
+import org.bukkit.Material;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Immutable set of {@link Material Materials} backed by a bitset indexed by {@link Material#ordinal()}.
+ * Intended for hot paths where tags would otherwise be checked repeatedly.
+ */
+public final class MaterialSet {
+
+    public static final MaterialSet EMPTY = new MaterialSet(new long[0]);
+
+    private final long[] bits;
+
+    private MaterialSet(final long[] bits) {
+        this.bits = bits;
+    }
+
+    /**
+     * Creates and returns new {@link MaterialSet} containing all materials of specified collections. Null collections are skipped.
+     */
+    @SafeVarargs
+    public static @NotNull MaterialSet of(final @Nullable Iterable<Material>... sources) {
+        final long[] bits = new long[(Material.values().length + 63) >> 6];
+        // Setting bits of all materials.
+        for (final @Nullable Iterable<Material> source : sources)
+            if (source != null)
+                for (final Material material : source)
+                    bits[material.ordinal() >> 6] |= 1L << material.ordinal();
+        // ...
+        return new MaterialSet(bits);
+    }
+
+    /**
+     * Returns {@code true} if this set contains specified material.
+     */
+    public boolean contains(final @NotNull Material material) {
+        final int index = material.ordinal() >> 6;
+        return index < bits.length && (bits[index] & (1L << material.ordinal())) != 0;
+    }
+
+}
@@ -93,15 +93,17 @@ public final class Utilities {
             // Returning, as this has been already handled.
             return;
         }
+        // Getting the (shared) parsed message with delay information.
+        final ComponentTemplate inProgressMessage = ComponentTemplate.of(PluginConfig.TELEPORTATION_SETTINGS_LANG_TELEPORT_IN_PROGRESS, "delay");
         // Sending action bar message with delay information.
-        Message.of(PluginConfig.TELEPORTATION_SETTINGS_LANG_TELEPORT_IN_PROGRESS).placeholder("delay", delay).sendActionBar(source);
+        Message.of(inProgressMessage.render(Component.text(delay))).sendActionBar(source);
         // Submitting an asynchronous countdown task, after which the player will be teleported.
         CompletableFuture.supplyAsync(() -> {
             try {
                 for (int delayLeft = delay; delayLeft != 0; delayLeft--) {
                     source.playSound(source, "minecraft:block.note_block.hat", SoundCategory.MASTER, 0.5F, 2.0F);
                     // Showing message with delay information on the action bar.
-                    Message.of(PluginConfig.TELEPORTATION_SETTINGS_LANG_TELEPORT_IN_PROGRESS).placeholder("delay", delayLeft).sendActionBar(source);
+                    Message.of(inProgressMessage.render(Component.text(delayLeft))).sendActionBar(source);
                     // Handling teleport interrupt. (moving)
                     if (source.getLocation().distanceSquared(sourceInitialLocation) > 1.0) {
                         // Showing failure message on the action bar. Interrupted.
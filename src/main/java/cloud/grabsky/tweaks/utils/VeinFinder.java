@@ -0,0 +1,119 @@
+/*
+ * Tweaks (https://github.com/Grabsky/Tweaks)
+ *
+ * Copyright (C) 2024  Grabsky <michal.czopek.foss@proton.me>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License v3 as published by
+ * the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License v3 for more details.
+ */
+package cloud.grabsky.tweaks.utils;
+
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Finds blocks connected to an origin block, for example an ore vein. Chunks are captured as {@link ChunkSnapshot ChunkSnapshots} on the main thread,
+ * after which {@link #find()} can be safely called from any thread.
+ */
+public final class VeinFinder {
+
+    private final @NotNull Material type;
+    private final int originX, originY, originZ;
+    private final int minHeight, maxHeight;
+    private final int maxBlocks, maxRadius;
+
+    // Snapshots of chunks within the radius, keyed by chunk key. Chunks that were not loaded are missing, and are treated as vein boundary.
+    private final Map<Long, ChunkSnapshot> snapshots = new HashMap<>();
+
+    /**
+     * Creates new {@link VeinFinder} for specified origin block, capturing snapshots of loaded chunks within specified radius. Must be called on the main thread.
+     */
+    public VeinFinder(final @NotNull Block origin, final int maxBlocks, final int maxRadius) {
+        final World world = origin.getWorld();
+        this.type = origin.getType();
+        this.originX = origin.getX();
+        this.originY = origin.getY();
+        this.originZ = origin.getZ();
+        this.minHeight = world.getMinHeight();
+        this.maxHeight = world.getMaxHeight();
+        this.maxBlocks = maxBlocks;
+        this.maxRadius = maxRadius;
+        // Capturing snapshots of loaded chunks within the radius. Only block data is needed.
+        for (int chunkX = (originX - maxRadius) >> 4; chunkX <= (originX + maxRadius) >> 4; chunkX++)
+            for (int chunkZ = (originZ - maxRadius) >> 4; chunkZ <= (originZ + maxRadius) >> 4; chunkZ++)
+                if (world.isChunkLoaded(chunkX, chunkZ) == true)
+                    snapshots.put(Chunk.getChunkKey(chunkX, chunkZ), world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false));
+    }
+
+    /**
+     * Returns keys (see {@link Block#getBlockKey(int, int, int)}) of blocks connected to the origin block that are of the same type, closest first.
+     * Blocks are connected when they touch by face, edge or corner. Origin block is not included. Can be called from any thread.
+     */
+    public @NotNull List<Long> find() {
+        final List<Long> found = new ArrayList<>();
+        final Set<Long> visited = new HashSet<>();
+        final Queue<int[]> queue = new ArrayDeque<>();
+        // Starting at the origin block.
+        visited.add(Block.getBlockKey(originX, originY, originZ));
+        queue.add(new int[] { originX, originY, originZ });
+        // Visiting blocks in breadth-first order, until the limit is reached.
+        while (queue.isEmpty() == false && found.size() < maxBlocks) {
+            final int[] position = queue.poll();
+            // Iterating over all neighbours.
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dz = -1; dz <= 1; dz++) {
+                        final int x = position[0] + dx;
+                        final int y = position[1] + dy;
+                        final int z = position[2] + dz;
+                        // Skipping blocks outside of the radius and world height.
+                        if (Math.abs(x - originX) > maxRadius || Math.abs(y - originY) > maxRadius || Math.abs(z - originZ) > maxRadius || y < minHeight || y >= maxHeight)
+                            continue;
+                        // Skipping blocks that were already visited.
+                        if (visited.add(Block.getBlockKey(x, y, z)) == false)
+                            continue;
+                        // Skipping blocks of other type, and blocks in chunks that were not loaded.
+                        if (getType(x, y, z) != type)
+                            continue;
+                        // Adding the block to the results.
+                        found.add(Block.getBlockKey(x, y, z));
+                        queue.add(new int[] { x, y, z });
+                        // Returning in case limit has been reached.
+                        if (found.size() >= maxBlocks)
+                            return found;
+                    }
+                }
+            }
+        }
+        // ...
+        return found;
+    }
+
+    // Returns type of the block at specified position, or null if chunk was not captured.
+    private @Nullable Material getType(final int x, final int y, final int z) {
+        final @Nullable ChunkSnapshot snapshot = snapshots.get(Chunk.getChunkKey(x >> 4, z >> 4));
+        return (snapshot != null) ? snapshot.getBlockType(x & 15, y, z & 15) : null;
+    }
+
+}
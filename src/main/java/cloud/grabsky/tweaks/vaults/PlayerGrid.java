@@ -0,0 +1,170 @@
+/*
+ * Tweaks (https://github.com/Grabsky/Tweaks)
+ *
+ * Copyright (C) 2024  Grabsky <michal.czopek.foss@proton.me>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License v3 as published by
+ * the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License v3 for more details.
+ */
+package cloud.grabsky.tweaks.vaults;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.event.vehicle.VehicleMoveEvent;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Online players, grouped by world and chunk column. Grid is updated incrementally, only when a player enters another chunk column,
+ * so range checks visit only players in columns that overlap the range, and never all online players. Must be accessed on the main thread.
+ * Event handlers must be registered, and {@link #rebuild()} called once, for the grid to stay up to date.
+ */
+public final class PlayerGrid implements Listener {
+
+    // Players, keyed by world and chunk key.
+    private final Map<UUID, Map<Long, Set<Player>>> cells = new HashMap<>();
+
+    // Cell each player is currently in, keyed by unique id of the player.
+    private final Map<UUID, Cell> current = new HashMap<>();
+
+    /**
+     * Rebuilds the grid from all online players. Should be called once, when event handlers are registered.
+     */
+    public void rebuild() {
+        cells.clear();
+        current.clear();
+        // Adding each online player.
+        for (final Player player : Bukkit.getOnlinePlayers())
+            update(player, player.getLocation());
+    }
+
+    /**
+     * Returns {@code true} if all players within specified distance from specified location match specified predicate.
+     * Returns {@code true} if there are no players in range, the same way {@link java.util.stream.Stream#allMatch(Predicate)} does.
+     */
+    public boolean allMatch(final @NotNull Location center, final double radius, final @NotNull Predicate<Player> predicate) {
+        final @Nullable Map<Long, Set<Player>> columns = cells.get(center.getWorld().getUID());
+        // Returning early in case there are no players in this world.
+        if (columns == null)
+            return true;
+        final double radiusSquared = radius * radius;
+        // Iterating over chunk columns that overlap the sphere.
+        for (int chunkX = (int) Math.floor(center.getX() - radius) >> 4; chunkX <= (int) Math.floor(center.getX() + radius) >> 4; chunkX++) {
+            for (int chunkZ = (int) Math.floor(center.getZ() - radius) >> 4; chunkZ <= (int) Math.floor(center.getZ() + radius) >> 4; chunkZ++) {
+                final @Nullable Set<Player> players = columns.get(Chunk.getChunkKey(chunkX, chunkZ));
+                // Skipping columns with no players.
+                if (players == null)
+                    continue;
+                // Testing players that are within the sphere. Actual position is used, as it may have changed within the column.
+                for (final Player player : players)
+                    if (player.getLocation().distanceSquared(center) <= radiusSquared && predicate.test(player) == false)
+                        return false;
+            }
+        }
+        // ...
+        return true;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(final @NotNull PlayerJoinEvent event) {
+        update(event.getPlayer(), event.getPlayer().getLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(final @NotNull PlayerQuitEvent event) {
+        remove(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(final @NotNull PlayerMoveEvent event) {
+        // Skipping movement within the same chunk column, which is the vast majority of calls.
+        if (event.getFrom().getWorld() == event.getTo().getWorld() && event.getFrom().getBlockX() >> 4 == event.getTo().getBlockX() >> 4 && event.getFrom().getBlockZ() >> 4 == event.getTo().getBlockZ() >> 4)
+            return;
+        // ...
+        update(event.getPlayer(), event.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(final @NotNull PlayerTeleportEvent event) {
+        update(event.getPlayer(), event.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(final @NotNull PlayerRespawnEvent event) {
+        update(event.getPlayer(), event.getRespawnLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR) // Players riding vehicles are moved without PlayerMoveEvent being called.
+    public void onVehicleMove(final @NotNull VehicleMoveEvent event) {
+        for (final Entity passenger : event.getVehicle().getPassengers())
+            if (passenger instanceof Player player)
+                update(player, event.getTo());
+    }
+
+    /* HELPER METHODS */
+
+    // Moves specified player to the cell of specified location, unless they're already in it.
+    private void update(final @NotNull Player player, final @NotNull Location location) {
+        final Cell cell = new Cell(location.getWorld().getUID(), Chunk.getChunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4));
+        final @Nullable Cell previous = current.put(player.getUniqueId(), cell);
+        // Returning in case player has not left the cell.
+        if (cell.equals(previous) == true)
+            return;
+        // Removing player from the previous cell.
+        if (previous != null)
+            remove(player, previous);
+        // Adding player to the new cell.
+        cells.computeIfAbsent(cell.worldId(), (_) -> new HashMap<>()).computeIfAbsent(cell.chunkKey(), (_) -> new HashSet<>(2)).add(player);
+    }
+
+    // Removes specified player from the grid.
+    private void remove(final @NotNull Player player) {
+        final @Nullable Cell previous = current.remove(player.getUniqueId());
+        if (previous != null)
+            remove(player, previous);
+    }
+
+    // Removes specified player from specified cell, removing the cell in case it's left empty.
+    private void remove(final @NotNull Player player, final @NotNull Cell cell) {
+        final @Nullable Map<Long, Set<Player>> columns = cells.get(cell.worldId());
+        // Removing the player.
+        if (columns != null) {
+            columns.computeIfPresent(cell.chunkKey(), (_, players) -> {
+                players.remove(player);
+                return (players.isEmpty() == false) ? players : null;
+            });
+            // Removing the world in case it's left empty.
+            if (columns.isEmpty() == true)
+                cells.remove(cell.worldId());
+        }
+    }
+
+    // Chunk column of a world.
+    private record Cell(@NotNull UUID worldId, long chunkKey) { /* KEY */ }
+
+}
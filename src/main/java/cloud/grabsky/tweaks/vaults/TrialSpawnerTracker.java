@@ -0,0 +1,259 @@
+/*
+ * Tweaks (https://github.com/Grabsky/Tweaks)
+ *
+ * Copyright (C) 2024  Grabsky <michal.czopek.foss@proton.me>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License v3 as published by
+ * the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License v3 for more details.
+ */
+package cloud.grabsky.tweaks.vaults;
+
+import cloud.grabsky.tweaks.Tweaks;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.TrialSpawner;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockDispenseLootEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.TrialSpawnerSpawnEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Tracks cooldowns of trial spawners in loaded chunks, so they can be looked up without reading block states.
+ * <ul>
+ *     <li>Spawners are recorded when their chunk loads, when they're placed, when they spawn a mob and when they eject rewards.</li>
+ *     <li>Spawners near players are also re-recorded periodically, as spawner can become active, or go back to waiting, without any event being called.</li>
+ *     <li>Each spawner is stored as a single {@code long}, packing the game time at which its cooldown ends with a flag telling whether it's active.</li>
+ *     <li>Remaining cooldown is derived from world game time, so nothing has to be recorded when cooldown ends.</li>
+ * </ul>
+ * Lookups can be done from any thread. Event handlers must be registered, and {@link #start()} must be called, for the tracker to stay up to date.
+ */
+@SuppressWarnings("UnstableApiUsage")
+@RequiredArgsConstructor(access = AccessLevel.PUBLIC)
+public final class TrialSpawnerTracker implements Listener {
+
+    /**
+     * Returned by {@link #getRemainingCooldown(World, int, int, int)} when spawner is not tracked, either because it does not exist or its chunk is not loaded.
+     */
+    public static final long UNTRACKED = -1L;
+
+    // Interval at which spawners near players are re-recorded, in ticks.
+    private static final long REFRESH_INTERVAL = 20L;
+
+    private final @NotNull Tweaks plugin;
+
+    // Tracked spawners, keyed by world, chunk key and block key.
+    private final Map<UUID, Map<Long, Map<Long, Long>>> spawners = new ConcurrentHashMap<>();
+
+    // Spawners to be recorded on the next tick, after their state has been updated by the server. Accessed only on the main thread.
+    private final Set<Block> pending = new HashSet<>();
+
+    private @Nullable BukkitTask refreshTask = null;
+
+    /**
+     * Records all trial spawners in loaded chunks, replacing anything that was tracked before. Must be called on the main thread.
+     */
+    public void recordAll() {
+        spawners.clear();
+        // Recording spawners of each loaded chunk.
+        for (final World world : Bukkit.getWorlds())
+            for (final Chunk chunk : world.getLoadedChunks())
+                record(chunk);
+    }
+
+    /**
+     * Starts periodic re-recording of spawners near players, stopping the previous one if running. Must be called on the main thread.
+     */
+    public void start() {
+        this.stop();
+        // Scheduling the task.
+        this.refreshTask = plugin.getBedrockScheduler().repeat(REFRESH_INTERVAL, REFRESH_INTERVAL, Long.MAX_VALUE, (_) -> {
+            refreshNearby();
+            // ...
+            return true;
+        });
+    }
+
+    /**
+     * Stops periodic re-recording of spawners near players.
+     */
+    public void stop() {
+        if (refreshTask != null) {
+            refreshTask.cancel();
+            refreshTask = null;
+        }
+    }
+
+    /**
+     * Returns remaining cooldown of trial spawner at specified position, in ticks. Returns {@code 0} if spawner is active or not on cooldown,
+     * and {@link #UNTRACKED} if spawner is not tracked. Can be called from any thread.
+     */
+    public long getRemainingCooldown(final @NotNull World world, final int x, final int y, final int z) {
+        final @Nullable Map<Long, Map<Long, Long>> chunks = spawners.get(world.getUID());
+        // Returning in case no spawner is tracked in this world.
+        if (chunks == null)
+            return UNTRACKED;
+        final @Nullable Map<Long, Long> chunk = chunks.get(Chunk.getChunkKey(x >> 4, z >> 4));
+        final @Nullable Long packed = (chunk != null) ? chunk.get(Block.getBlockKey(x, y, z)) : null;
+        // Returning in case spawner is not tracked.
+        if (packed == null)
+            return UNTRACKED;
+        // Returning zero for active spawners.
+        if ((packed & 1L) == 1L)
+            return 0L;
+        // ...
+        return Math.max(0L, (packed >> 1) - world.getGameTime());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(final @NotNull ChunkLoadEvent event) {
+        record(event.getChunk());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(final @NotNull ChunkUnloadEvent event) {
+        final @Nullable Map<Long, Map<Long, Long>> chunks = spawners.get(event.getWorld().getUID());
+        // Forgetting spawners of the chunk.
+        if (chunks != null)
+            chunks.remove(event.getChunk().getChunkKey());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(final @NotNull WorldUnloadEvent event) {
+        spawners.remove(event.getWorld().getUID());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onSpawnerPlace(final @NotNull BlockPlaceEvent event) {
+        if (event.getBlockPlaced().getType() == Material.TRIAL_SPAWNER)
+            recordLater(event.getBlockPlaced());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onSpawnerBreak(final @NotNull BlockBreakEvent event) {
+        if (event.getBlock().getType() == Material.TRIAL_SPAWNER)
+            remove(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onSpawnerSpawn(final @NotNull TrialSpawnerSpawnEvent event) {
+        recordLater(event.getTrialSpawner().getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onSpawnerEject(final @NotNull BlockDispenseLootEvent event) {
+        // Ejecting rewards is what puts the spawner on cooldown.
+        if (event.getBlock().getType() == Material.TRIAL_SPAWNER)
+            recordLater(event.getBlock());
+    }
+
+    /* HELPER METHODS */
+
+    // Records all trial spawners of specified chunk. Block states are read without taking snapshots.
+    private void record(final @NotNull Chunk chunk) {
+        for (final BlockState state : chunk.getTileEntities((block) -> block.getType() == Material.TRIAL_SPAWNER, false))
+            if (state instanceof TrialSpawner spawner)
+                record(spawner);
+    }
+
+    // Records specified trial spawner.
+    private void record(final @NotNull TrialSpawner spawner) {
+        final long packed = (spawner.getCooldownEnd() << 1) | ((spawner.getNextSpawnAttempt() != 0) ? 1L : 0L);
+        // Putting the spawner into the index.
+        spawners.computeIfAbsent(spawner.getWorld().getUID(), (_) -> new ConcurrentHashMap<>())
+                .computeIfAbsent(Chunk.getChunkKey(spawner.getX() >> 4, spawner.getZ() >> 4), (_) -> new ConcurrentHashMap<>())
+                .put(Block.getBlockKey(spawner.getX(), spawner.getY(), spawner.getZ()), packed);
+    }
+
+    // Re-records tracked spawners in chunks around each online player. Only spawners that are already tracked are read, so chunks are not scanned.
+    private void refreshNearby() {
+        final Set<Block> visited = new HashSet<>();
+        // Iterating over online players.
+        for (final Player player : Bukkit.getOnlinePlayers()) {
+            final @Nullable Map<Long, Map<Long, Long>> chunks = spawners.get(player.getWorld().getUID());
+            // Skipping players in worlds with no tracked spawners.
+            if (chunks == null)
+                continue;
+            final int chunkX = player.getLocation().getBlockX() >> 4;
+            final int chunkZ = player.getLocation().getBlockZ() >> 4;
+            // Visiting chunks around the player. Spawners detect players within 14 blocks, so neighbouring chunks are enough.
+            for (int x = chunkX - 1; x <= chunkX + 1; x++) {
+                for (int z = chunkZ - 1; z <= chunkZ + 1; z++) {
+                    final @Nullable Map<Long, Long> chunk = chunks.get(Chunk.getChunkKey(x, z));
+                    // Skipping chunks with no tracked spawners.
+                    if (chunk == null)
+                        continue;
+                    // Re-recording each spawner once, even if there are multiple players nearby.
+                    for (final long blockKey : chunk.keySet()) {
+                        final Block block = player.getWorld().getBlockAtKey(blockKey);
+                        if (visited.add(block) == false)
+                            continue;
+                        // Recording the spawner, or forgetting it in case it's no longer there.
+                        if (block.getState(false) instanceof TrialSpawner spawner)
+                            record(spawner);
+                        else remove(block);
+                    }
+                }
+            }
+        }
+    }
+
+    // Schedules specified block to be recorded on the next tick. All blocks scheduled within a tick are recorded by a single task.
+    private void recordLater(final @NotNull Block block) {
+        if (pending.add(block) == true && pending.size() == 1)
+            plugin.getBedrockScheduler().run(1L, (_) -> {
+                for (final Block it : pending) {
+                    // Skipping blocks in chunks that were unloaded in the meantime, as reading them would load the chunk again.
+                    if (it.getWorld().isChunkLoaded(it.getX() >> 4, it.getZ() >> 4) == false)
+                        continue;
+                    // Recording the spawner, or forgetting it in case it's no longer there.
+                    if (it.getState(false) instanceof TrialSpawner spawner)
+                        record(spawner);
+                    else remove(it);
+                }
+                // ...
+                pending.clear();
+            });
+    }
+
+    // Forgets trial spawner at specified block.
+    private void remove(final @NotNull Block block) {
+        final @Nullable Map<Long, Map<Long, Long>> chunks = spawners.get(block.getWorld().getUID());
+        // Removing the spawner, if tracked.
+        if (chunks != null) {
+            final @Nullable Map<Long, Long> chunk = chunks.get(Chunk.getChunkKey(block.getX() >> 4, block.getZ() >> 4));
+            if (chunk != null)
+                chunk.remove(block.getBlockKey());
+        }
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Tweaks (https://github.com/Grabsky/Tweaks)
+ *
+ * Copyright (C) 2024  Grabsky <michal.czopek.foss@proton.me>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License v3 as published by
+ * the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License v3 for more details.
+ */
+package cloud.grabsky.tweaks.vaults;
+
+import cloud.grabsky.tweaks.configuration.PluginConfig;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.Vault;
+import org.bukkit.persistence.PersistentDataContainer;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Keeps unlock timestamps of vaults in memory, so reading them is a binary search instead of a block state snapshot and PDC deserialization.
+ * <ul>
+ *     <li>Vaults are loaded lazily, on first access, from the {@link PersistentDataContainer} of the block.</li>
+ *     <li>Changes are written back to the block only when {@link #save(World, long, boolean)} or {@link #saveAll(boolean)} is called,
+ *     which is expected to happen when chunk unloads, periodically and on shutdown.</li>
+ *     <li>Data is stored in the format of {@link VaultUnlockCodec}. Timestamps older than the cooldown of the vault are pruned on each write.
+ *     Vaults holding data of unsupported version are never written.</li>
+ * </ul>
+ * Entries can be read from any thread through {@link #getIfLoaded(World, int, int, int)}. Everything else must be called on the main thread.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public final class VaultCooldownIndex {
+
+    // Loaded vaults, keyed by world, chunk key and block key.
+    private final Map<UUID, Map<Long, Map<Long, VaultEntry>>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Returns entry of vault at specified block, loading it from the block in case it's not loaded yet. Returns {@code null} if block is not a vault.
+     */
+    public @Nullable VaultEntry get(final @NotNull Block block) {
+        final @Nullable VaultEntry existing = getIfLoaded(block.getWorld(), block.getX(), block.getY(), block.getZ());
+        // Returning loaded entry.
+        if (existing != null)
+            return existing;
+        // Reading the block state without taking a snapshot, as only the PDC and immutable vault configuration is read.
+        if (block.getState(false) instanceof Vault vault) {
+            final byte @Nullable [] data = VaultUnlockCodec.read(vault.getPersistentDataContainer());
+            // Data of unsupported version (for example, written by a newer version of the plugin) cannot be decoded. Such entries are never written, so the data is not lost.
+            final boolean isWritable = data == null || VaultUnlockCodec.isSupported(data) == true;
+            // Creating the entry.
+            final VaultEntry entry = new VaultEntry(block.getX(), block.getY(), block.getZ(), vault.getLootTable().getKey().asString(), vault.getActivationRange(), (data != null && isWritable == true) ? data : VaultUnlockCodec.encode(Map.of(), Long.MIN_VALUE), isWritable);
+            // Marking entries stored in the legacy format as changed, so they're converted on next save.
+            if (VaultUnlockCodec.isLegacy(vault.getPersistentDataContainer()) == true)
+                entry.markDirty();
+            // Adding the entry to the index.
+            entries.computeIfAbsent(block.getWorld().getUID(), (_) -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(Chunk.getChunkKey(block.getX() >> 4, block.getZ() >> 4), (_) -> new ConcurrentHashMap<>())
+                    .put(block.getBlockKey(), entry);
+            // ...
+            return entry;
+        }
+        // ...
+        return null;
+    }
+
+    /**
+     * Returns entry of vault at specified position, or {@code null} if it's not loaded. Can be called from any thread.
+     */
+    public @Nullable VaultEntry getIfLoaded(final @NotNull World world, final int x, final int y, final int z) {
+        final @Nullable Map<Long, Map<Long, VaultEntry>> chunks = entries.get(world.getUID());
+        // Returning null in case no vault was loaded in this world.
+        if (chunks == null)
+            return null;
+        final @Nullable Map<Long, VaultEntry> vaults = chunks.get(Chunk.getChunkKey(x >> 4, z >> 4));
+        // ...
+        return (vaults != null) ? vaults.get(Block.getBlockKey(x, y, z)) : null;
+    }
+
+    /**
+     * Removes entry of vault at specified block, without saving it. Should be called when vault is removed from the world.
+     */
+    public void remove(final @NotNull Block block) {
+        final @Nullable Map<Long, Map<Long, VaultEntry>> chunks = entries.get(block.getWorld().getUID());
+        // Removing the entry, if present.
+        if (chunks != null) {
+            final @Nullable Map<Long, VaultEntry> vaults = chunks.get(Chunk.getChunkKey(block.getX() >> 4, block.getZ() >> 4));
+            if (vaults != null)
+                vaults.remove(block.getBlockKey());
+        }
+    }
+
+    /**
+     * Writes changed entries of specified chunk to their blocks. Entries are also removed from the index when {@code evict} is {@code true}.
+     */
+    public void save(final @NotNull World world, final long chunkKey, final boolean evict) {
+        final @Nullable Map<Long, Map<Long, VaultEntry>> chunks = entries.get(world.getUID());
+        // Returning in case no vault was loaded in this world.
+        if (chunks == null)
+            return;
+        final @Nullable Map<Long, VaultEntry> vaults = (evict == true) ? chunks.remove(chunkKey) : chunks.get(chunkKey);
+        // Writing changed entries.
+        if (vaults != null)
+            for (final VaultEntry entry : vaults.values())
+                if (entry.isDirty() == true)
+                    write(world, entry);
+    }
+
+    /**
+     * Writes changed entries of specified world to their blocks. Entries are also removed from the index when {@code evict} is {@code true}.
+     */
+    public void save(final @NotNull World world, final boolean evict) {
+        final @Nullable Map<Long, Map<Long, VaultEntry>> chunks = entries.get(world.getUID());
+        // Returning in case no vault was loaded in this world.
+        if (chunks == null)
+            return;
+        // Writing changed entries of each chunk.
+        for (final long chunkKey : chunks.keySet())
+            save(world, chunkKey, false);
+        // Removing the world from the index.
+        if (evict == true)
+            entries.remove(world.getUID());
+    }
+
+    /**
+     * Writes all changed entries to their blocks. Entries are also removed from the index when {@code evict} is {@code true}.
+     */
+    public void saveAll(final boolean evict) {
+        for (final UUID worldId : entries.keySet()) {
+            final @Nullable World world = Bukkit.getWorld(worldId);
+            // Writing entries of worlds that are still loaded. Others were saved when the world was unloaded.
+            if (world != null)
+                save(world, false);
+        }
+        // Clearing the index.
+        if (evict == true)
+            entries.clear();
+    }
+
+    /* HELPER METHODS */
+
+    // Writes timestamps of specified entry to the PDC of its block, pruning the expired ones. Entries holding data that could not be decoded are skipped.
+    private static void write(final @NotNull World world, final @NotNull VaultEntry entry) {
+        if (entry.isWritable() == false)
+            return;
+        // Taking a snapshot, as changes must be applied with BlockState#update to be persisted.
+        if (world.getBlockAt(entry.getX(), entry.getY(), entry.getZ()).getState() instanceof Vault vault) {
+            final @Nullable Long cooldown = PluginConfig.VAULTS_SETTINGS_COOLDOWNS.get(entry.getLootTable());
+            // Getting the timestamp before which unlocks are no longer relevant. Nothing is pruned from vaults that have no cooldown configured.
+            final long expiredBefore = (cooldown != null) ? System.currentTimeMillis() - cooldown * 1000 : Long.MIN_VALUE;
+            // Pruning expired timestamps from memory, and writing the rest.
+            VaultUnlockCodec.write(vault.getPersistentDataContainer(), entry.prune(expiredBefore));
+            // Updating the block state. Otherwise changes won't be applied.
+            vault.update();
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Tweaks (https://github.com/Grabsky/Tweaks)
+ *
+ * Copyright (C) 2024  Grabsky <michal.czopek.foss@proton.me>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License v3 as published by
+ * the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License v3 for more details.
+ */
+package cloud.grabsky.tweaks.vaults;
+
+import cloud.grabsky.bedrock.util.Interval;
+import cloud.grabsky.bedrock.util.Interval.Unit;
+
+import java.util.UUID;
+
+import org.jetbrains.annotations.NotNull;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * Cooldown of a vault for a single player, formatted for display. Expiry is computed once, when subscription is created or player unlocks the vault,
+ * and text is re-published periodically, only when it changes. Text can be read from any thread, and reading it is a volatile field read.
+ */
+public final class VaultCountdown {
+
+    @Getter(AccessLevel.PUBLIC)
+    private final @NotNull UUID playerId;
+
+    @Getter(AccessLevel.PUBLIC)
+    private final @NotNull UUID worldId;
+
+    @Getter(AccessLevel.PUBLIC)
+    private final long blockKey;
+
+    // Timestamp at which the cooldown ends, in milliseconds.
+    private volatile long expiresAt;
+
+    // Last published text. Empty when player is not on cooldown.
+    private volatile @NotNull String text = "";
+
+    // Whether text was read since last publish. Used to drop subscriptions that are no longer in use.
+    private volatile boolean isRead = true;
+
+    // Number of consecutive publishes during which text was not read. Accessed only by the publishing thread.
+    private int idlePublishes = 0;
+
+    public VaultCountdown(final @NotNull UUID playerId, final @NotNull UUID worldId, final long blockKey, final long expiresAt) {
+        this.playerId = playerId;
+        this.worldId = worldId;
+        this.blockKey = blockKey;
+        this.expiresAt = expiresAt;
+        this.publish(System.currentTimeMillis());
+    }
+
+    /**
+     * Returns last published text. Empty when player is not on cooldown.
+     */
+    public @NotNull String getText() {
+        // Marking as read. Written only once between publishes.
+        if (isRead == false)
+            isRead = true;
+        // ...
+        return text;
+    }
+
+    /**
+     * Sets timestamp at which the cooldown ends, in milliseconds, and publishes new text right away.
+     */
+    public void setExpiresAt(final long expiresAt) {
+        this.expiresAt = expiresAt;
+        this.publish(System.currentTimeMillis());
+    }
+
+    /**
+     * Re-publishes text for specified time, in case it has changed. Returns {@code false} if text was not read for more than {@code maxIdlePublishes} publishes,
+     * in which case subscription should be dropped. Must be called from a single thread.
+     */
+    public boolean publish(final long now, final int maxIdlePublishes) {
+        // Counting publishes during which text was not read.
+        if (isRead == true) {
+            isRead = false;
+            idlePublishes = 0;
+        } else if (++idlePublishes > maxIdlePublishes)
+            return false;
+        // Publishing the text.
+        this.publish(now);
+        // ...
+        return true;
+    }
+
+    /* HELPER METHODS */
+
+    private void publish(final long now) {
+        final long expiresAt = this.expiresAt;
+        final long remaining = expiresAt - now;
+        // Formatting the remaining time. Interval is not created once the cooldown is over.
+        final String next = (remaining > 0) ? Interval.between(expiresAt, now, Unit.MILLISECONDS).toString() : "";
+        // Writing the volatile field only when text has changed.
+        if (next.equals(text) == false)
+            this.text = next;
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Tweaks (https://github.com/Grabsky/Tweaks)
+ *
+ * Copyright (C) 2024  Grabsky <michal.czopek.foss@proton.me>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License v3 as published by
+ * the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License v3 for more details.
+ */
+package cloud.grabsky.tweaks.vaults;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * In-memory copy of a single vault, as seen by {@link VaultCooldownIndex}. Holds values that are needed on hot paths, so the block state
+ * does not have to be read again, and the last unlock timestamp of each player. Can be read from any thread.
+ * <p>
+ * Timestamps are kept in the encoded form read from the block, and looked up with a binary search, so loading a vault does not decode anything.
+ * Timestamps set since the last write are kept in a separate map, and merged into the encoded form on next write.
+ */
+public final class VaultEntry {
+
+    @Getter(AccessLevel.PUBLIC)
+    private final int x, y, z;
+
+    @Getter(AccessLevel.PUBLIC)
+    private final @NotNull String lootTable;
+
+    @Getter(AccessLevel.PUBLIC)
+    private final double activationRange;
+
+    // Last unlock timestamps, as encoded by VaultUnlockCodec. Replaced on each write.
+    private volatile byte @NotNull [] data;
+
+    // Last unlock timestamps set since the last write, in milliseconds, keyed by unique id of the player. These take precedence over encoded ones.
+    private final Map<UUID, Long> changes = new ConcurrentHashMap<>();
+
+    // Whether timestamps were changed since they were last written to the block.
+    private volatile boolean isDirty = false;
+
+    // Whether timestamps can be written to the block. False when data stored in the block could not be decoded, so it's not overwritten.
+    private final boolean isWritable;
+
+    VaultEntry(final int x, final int y, final int z, final @NotNull String lootTable, final double activationRange, final byte @NotNull [] data, final boolean isWritable) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.lootTable = lootTable;
+        this.activationRange = activationRange;
+        this.data = data;
+        this.isWritable = isWritable;
+    }
+
+    /**
+     * Returns timestamp at which specified player has last unlocked this vault, or {@code 0} if they never did.
+     */
+    public long getLastUnlock(final @NotNull UUID uniqueId) {
+        final @Nullable Long changed = changes.get(uniqueId);
+        // Looking up encoded timestamps in case it was not changed since the last write.
+        return (changed != null) ? changed : VaultUnlockCodec.lookup(data, uniqueId);
+    }
+
+    /**
+     * Sets timestamp at which specified player has last unlocked this vault. Change is written to the block on next save.
+     */
+    public void setLastUnlock(final @NotNull UUID uniqueId, final long timestamp) {
+        changes.put(uniqueId, timestamp);
+        isDirty = true;
+    }
+
+    /* PACKAGE-PRIVATE METHODS */
+
+    boolean isDirty() {
+        return isDirty;
+    }
+
+    boolean isWritable() {
+        return isWritable;
+    }
+
+    void markDirty() {
+        isDirty = true;
+    }
+
+    // Merges changed timestamps into the encoded ones, removes timestamps older than specified one, and returns the result. Must be called on the main thread, as the entry is marked clean.
+    byte @NotNull [] prune(final long expiredBefore) {
+        final Map<UUID, Long> timestamps = VaultUnlockCodec.decode(data);
+        timestamps.putAll(changes);
+        // Replacing encoded timestamps before changes are cleared, so readers from other threads always see either of them.
+        this.data = VaultUnlockCodec.encode(timestamps, expiredBefore);
+        changes.clear();
+        isDirty = false;
+        // ...
+        return data;
+    }
+
+}
@@ -0,0 +1,388 @@
+/*
+ * Tweaks (https://github.com/Grabsky/Tweaks)
+ *
+ * Copyright (C) 2024  Grabsky <michal.czopek.foss@proton.me>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License v3 as published by
+ * the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License v3 for more details.
+ */
+package cloud.grabsky.tweaks.vaults;
+
+import cloud.grabsky.tweaks.Tweaks;
+import cloud.grabsky.tweaks.configuration.PluginConfig;
+import cloud.grabsky.tweaks.handlers.ReusableVaultsHandler;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Vault;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Visits all vaults within an area of a world, including ones in chunks that are not loaded, and collects totals of their unlock data.
+ * <ul>
+ *     <li>Chunks are loaded with {@link World#getChunkAtAsync(int, int, boolean)}, with a limited number of chunks being loaded at the same time.
+ *     Chunks that were never generated are skipped.</li>
+ *     <li>When scanning the whole world, chunks are listed from headers of region files, off the main thread. Scan is refused in case there are more
+ *     chunks than {@link PluginConfig#VAULTS_SETTINGS_MAX_SCAN_CHUNKS}.</li>
+ *     <li>Unlock data is copied on the main thread and decoded off the main thread.</li>
+ *     <li>In {@link Mode#RESET} mode, chunks with vaults are kept loaded with a plugin ticket, and vaults are reset in batches of limited size per tick.</li>
+ * </ul>
+ * Only one scan can run at a time. Must be started on the main thread. Scan is stopped, and its future completed exceptionally, on the first error.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public final class VaultScan {
+
+    public enum Mode {
+        SCAN, STATS, RESET
+    }
+
+    /**
+     * Totals collected by a scan. Number of unique players and active cooldowns is {@code -1} in {@link Mode#SCAN} mode, as unlock data is not decoded.
+     */
+    public record Result(int chunks, int vaults, int vaultsWithData, long bytes, int uniquePlayers, int activeCooldowns) { /* DATA */ }
+
+    /**
+     * Thrown when whole world is scanned and it has more generated chunks than {@link PluginConfig#VAULTS_SETTINGS_MAX_SCAN_CHUNKS}. Future of the scan is completed with it.
+     */
+    public static final class TooManyChunksException extends IllegalStateException {
+
+        public TooManyChunksException(final int limit) {
+            super("World has more than " + limit + " generated chunks.");
+        }
+
+    }
+
+    private static final int MAX_CHUNKS_IN_FLIGHT = 16;
+    private static final int RESETS_PER_TICK = 32;
+
+    // Matches names of region files. Each region file holds 32x32 chunks.
+    private static final Pattern REGION_FILE_NAME = Pattern.compile("^r\\.(-?\\d+)\\.(-?\\d+)\\.mca$");
+
+    // Size of the location table at the beginning of each region file. Holds one 4-byte entry per chunk, which is zero for chunks that were never written.
+    private static final int REGION_HEADER_SIZE = 4096;
+
+    private static final AtomicBoolean IS_RUNNING = new AtomicBoolean(false);
+
+    private final @NotNull Tweaks plugin;
+    private final @NotNull ReusableVaultsHandler handler;
+    private final @NotNull World world;
+    private final @NotNull Mode mode;
+
+    // Area to scan. Whole world is scanned in case center is null.
+    private final @Nullable Location center;
+    private final int radius;
+
+    // Keys of chunks to visit, and index of the next one. Listed when the scan is started.
+    private long[] chunks = new long[0];
+    private int cursor = 0;
+
+    private int inFlight = 0;
+    private boolean isPumping = false;
+    private boolean isScanned = false;
+
+    // Totals collected on the main thread.
+    private int visitedChunks = 0;
+    private int vaults = 0;
+    private long bytes = 0L;
+    private final List<Sample> samples = new ArrayList<>();
+
+    // Vaults to reset, and chunks that are kept loaded until they're reset.
+    private final Queue<Block> resets = new ArrayDeque<>();
+    private final List<Chunk> tickets = new ArrayList<>();
+
+    private final CompletableFuture<Result> future = new CompletableFuture<>();
+
+    /**
+     * Creates new {@link VaultScan} of chunks within {@code radius} blocks from {@code center}. Whole world is scanned in case center is {@code null}.
+     * Radius is expected to be validated by the caller, as array of keys of all chunks within it is allocated up-front.
+     */
+    public VaultScan(final @NotNull Tweaks plugin, final @NotNull ReusableVaultsHandler handler, final @NotNull World world, final @Nullable Location center, final int radius, final @NotNull Mode mode) {
+        this.plugin = plugin;
+        this.handler = handler;
+        this.world = world;
+        this.mode = mode;
+        this.center = center;
+        this.radius = radius;
+    }
+
+    /**
+     * Returns {@code true} if a scan is currently running.
+     */
+    public static boolean isRunning() {
+        return IS_RUNNING.get();
+    }
+
+    /**
+     * Starts the scan and returns future completed with collected totals. Future is completed on the main thread, or off the main thread if unlock data is decoded.
+     * Throws {@link IllegalStateException} in case another scan is already running.
+     */
+    public @NotNull CompletableFuture<Result> start() throws IllegalStateException {
+        if (IS_RUNNING.compareAndSet(false, true) == false)
+            throw new IllegalStateException("Another scan is already running.");
+        try {
+            // Writing timestamps held in memory, so they can be read from the blocks.
+            handler.save();
+            // Listing chunks within the radius and starting to load them...
+            if (center != null) {
+                this.chunks = getChunksInRadius(center, radius);
+                pump();
+                return future;
+            }
+            // ...or listing generated chunks off the main thread, as it requires reading all region files. Chunks are loaded from the main thread afterwards.
+            final int limit = PluginConfig.VAULTS_SETTINGS_MAX_SCAN_CHUNKS;
+            CompletableFuture.supplyAsync(() -> getGeneratedChunks(world, limit)).whenComplete((keys, thrown) -> {
+                if (thrown != null) {
+                    fail(thrown);
+                    return;
+                }
+                plugin.getBedrockScheduler().run(1L, (_) -> {
+                    try {
+                        this.chunks = keys;
+                        pump();
+                    } catch (final Throwable failure) {
+                        fail(failure);
+                    }
+                });
+            });
+        } catch (final Throwable thrown) {
+            fail(thrown);
+        }
+        // ...
+        return future;
+    }
+
+    /* HELPER METHODS */
+
+    // Requests chunks until the limit is reached. Chunks that are already loaded are completed right away, so the loop is guarded against re-entry.
+    private void pump() {
+        if (isPumping == true)
+            return;
+        isPumping = true;
+        // Requesting chunks. Nothing is requested once the scan has failed.
+        try {
+            while (future.isDone() == false && inFlight < MAX_CHUNKS_IN_FLIGHT && cursor < chunks.length) {
+                final long key = chunks[cursor++];
+                inFlight++;
+                // Loading the chunk, without generating it. Future is completed on the main thread.
+                world.getChunkAtAsync((int) key, (int) (key >> 32), false).whenComplete((chunk, failure) -> {
+                    inFlight--;
+                    // Skipping chunks loaded after the scan has failed.
+                    if (future.isDone() == true)
+                        return;
+                    // Visiting the chunk and requesting more. Chunk is null if it was never generated.
+                    try {
+                        if (failure != null)
+                            throw failure;
+                        if (chunk != null)
+                            visit(chunk);
+                        pump();
+                    } catch (final Throwable thrown) {
+                        fail(thrown);
+                    }
+                });
+            }
+        } finally {
+            isPumping = false;
+        }
+        // Finishing the scan once all chunks were visited.
+        if (future.isDone() == false && cursor >= chunks.length && inFlight == 0 && isScanned == false) {
+            isScanned = true;
+            // Resetting vaults, or summarizing right away.
+            if (mode == Mode.RESET)
+                resetNext();
+            else summarize();
+        }
+    }
+
+    // Collects unlock data of all vaults in specified chunk.
+    private void visit(final @NotNull Chunk chunk) {
+        visitedChunks++;
+        boolean hasVaults = false;
+        // Reading block states without taking snapshots, as nothing is modified here.
+        for (final BlockState state : chunk.getTileEntities((block) -> block.getType() == Material.VAULT, false)) {
+            if (state instanceof Vault vault) {
+                vaults++;
+                hasVaults = true;
+                // Copying unlock data, which is decoded later.
+                final byte @Nullable [] data = VaultUnlockCodec.read(vault.getPersistentDataContainer());
+                if (data != null && VaultUnlockCodec.size(data) > 0) {
+                    samples.add(new Sample(vault.getLootTable().getKey().asString(), data));
+                    bytes += data.length;
+                }
+                // Queuing the vault to be reset.
+                if (mode == Mode.RESET)
+                    resets.add(vault.getBlock());
+            }
+        }
+        // Keeping the chunk loaded until its vaults are reset.
+        if (mode == Mode.RESET && hasVaults == true && chunk.addPluginChunkTicket(plugin) == true)
+            tickets.add(chunk);
+    }
+
+    // Resets next batch of vaults, and schedules next batch for the next tick.
+    private void resetNext() {
+        try {
+            for (int i = 0; i < RESETS_PER_TICK && resets.isEmpty() == false; i++)
+                handler.reset(resets.poll());
+            // Scheduling next batch in case there are vaults left.
+            if (resets.isEmpty() == false) {
+                plugin.getBedrockScheduler().run(1L, (_) -> resetNext());
+                return;
+            }
+            // Releasing chunks, so they can be unloaded again.
+            releaseTickets();
+            // ...
+            summarize();
+        } catch (final Throwable thrown) {
+            fail(thrown);
+        }
+    }
+
+    // Completes the future with collected totals. Unlock data is decoded off the main thread, unless only scanning.
+    private void summarize() {
+        if (mode == Mode.SCAN) {
+            complete(new Result(visitedChunks, vaults, samples.size(), bytes, -1, -1));
+            return;
+        }
+        // Decoding unlock data off the main thread.
+        CompletableFuture.supplyAsync(() -> {
+            final Set<UUID> players = new HashSet<>();
+            final long now = System.currentTimeMillis();
+            int active = 0;
+            // Decoding each sample.
+            for (final Sample sample : samples) {
+                final @Nullable Long cooldown = PluginConfig.VAULTS_SETTINGS_COOLDOWNS.get(sample.lootTable());
+                for (final Map.Entry<UUID, Long> entry : VaultUnlockCodec.decode(sample.data()).entrySet()) {
+                    players.add(entry.getKey());
+                    // Counting cooldowns that are still active.
+                    if (cooldown != null && now - entry.getValue() < cooldown * 1000)
+                        active++;
+                }
+            }
+            // ...
+            return new Result(visitedChunks, vaults, samples.size(), bytes, players.size(), active);
+        }).whenComplete((result, thrown) -> {
+            if (thrown != null) {
+                fail(thrown);
+                return;
+            }
+            complete(result);
+        });
+    }
+
+    private void complete(final @NotNull Result result) {
+        IS_RUNNING.set(false);
+        future.complete(result);
+    }
+
+    // Stops the scan, releasing chunks that were kept loaded and allowing another scan to start. Tickets are released on the main thread.
+    private void fail(final @NotNull Throwable thrown) {
+        if (tickets.isEmpty() == false)
+            plugin.getBedrockScheduler().run(1L, (_) -> releaseTickets());
+        // ...
+        IS_RUNNING.set(false);
+        // Unwrapping failures of asynchronous steps, so the cause can be inspected by the caller.
+        future.completeExceptionally((thrown instanceof CompletionException && thrown.getCause() != null) ? thrown.getCause() : thrown);
+    }
+
+    // Releases chunks kept loaded until their vaults are reset, so they can be unloaded again. Must be called on the main thread.
+    private void releaseTickets() {
+        tickets.forEach(chunk -> chunk.removePluginChunkTicket(plugin));
+        tickets.clear();
+    }
+
+    // Returns keys of chunks that overlap specified radius around specified center.
+    private static long @NotNull [] getChunksInRadius(final @NotNull Location center, final int radius) {
+        final int minX = (center.getBlockX() - radius) >> 4, maxX = (center.getBlockX() + radius) >> 4;
+        final int minZ = (center.getBlockZ() - radius) >> 4, maxZ = (center.getBlockZ() + radius) >> 4;
+        final long[] keys = new long[(maxX - minX + 1) * (maxZ - minZ + 1)];
+        // Collecting keys.
+        int i = 0;
+        for (int x = minX; x <= maxX; x++)
+            for (int z = minZ; z <= maxZ; z++)
+                keys[i++] = Chunk.getChunkKey(x, z);
+        // ...
+        return keys;
+    }
+
+    // Returns keys of all chunks written to region files of specified world. Throws TooManyChunksException in case there are more than specified limit.
+    private static long @NotNull [] getGeneratedChunks(final @NotNull World world, final int limit) throws UncheckedIOException, TooManyChunksException {
+        final File directory = switch (world.getEnvironment()) {
+            case NETHER -> new File(world.getWorldFolder(), "DIM-1/region");
+            case THE_END -> new File(world.getWorldFolder(), "DIM1/region");
+            default -> new File(world.getWorldFolder(), "region");
+        };
+        final File @Nullable [] files = directory.listFiles();
+        // Returning no chunks in case there are no region files.
+        if (files == null)
+            return new long[0];
+        // Array is never larger than the limit. Filling it up means there are more chunks than that.
+        final long[] keys = new long[(int) Math.min(files.length * 1024L, Math.max(0, limit))];
+        int i = 0;
+        // Collecting chunks of each region.
+        for (final File file : files) {
+            final Matcher matcher = REGION_FILE_NAME.matcher(file.getName());
+            // Skipping files that are not region files.
+            if (matcher.matches() == false)
+                continue;
+            final int regionX = Integer.parseInt(matcher.group(1));
+            final int regionZ = Integer.parseInt(matcher.group(2));
+            // Reading the location table. Region files can be empty, or truncated, in case server has crashed while writing them.
+            final byte[] header;
+            try (final InputStream stream = Files.newInputStream(file.toPath())) {
+                header = stream.readNBytes(REGION_HEADER_SIZE);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (header.length < REGION_HEADER_SIZE)
+                continue;
+            final ByteBuffer table = ByteBuffer.wrap(header);
+            // Adding chunks that were written to the region. Entries are ordered by X first, then by Z.
+            for (int index = 0; index < 1024; index++) {
+                if (table.getInt(index << 2) == 0)
+                    continue;
+                if (i == keys.length)
+                    throw new TooManyChunksException(limit);
+                keys[i++] = Chunk.getChunkKey((regionX << 5) + (index & 31), (regionZ << 5) + (index >> 5));
+            }
+        }
+        // Trimming the array to the number of chunks actually written.
+        return Arrays.copyOf(keys, i);
+    }
+
+    // Unlock data of a single vault, copied on the main thread.
+    private record Sample(@NotNull String lootTable, byte @NotNull [] data) { /* DATA */ }
+
+}
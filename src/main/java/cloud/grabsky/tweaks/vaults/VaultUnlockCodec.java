@@ -0,0 +1,168 @@
+/*
+ * Tweaks (https://github.com/Grabsky/Tweaks)
+ *
+ * Copyright (C) 2024  Grabsky <michal.czopek.foss@proton.me>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License v3 as published by
+ * the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License v3 for more details.
+ */
+package cloud.grabsky.tweaks.vaults;
+
+import com.jeff_media.morepersistentdatatypes.DataType;
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Encodes unlock timestamps of a vault into a single, versioned {@code byte[]}.
+ * <ul>
+ *     <li>First byte is the format version.</li>
+ *     <li>It's followed by records of 24 bytes each: most and least significant bits of player's unique id, and timestamp in milliseconds.</li>
+ *     <li>Records are sorted by unique id (most significant bits first, compared as signed), so a single timestamp can be looked up
+ *     with {@link #lookup(byte[], UUID)}, without decoding the whole array.</li>
+ * </ul>
+ * Data stored in the legacy format (PDC compound of unique id to timestamp) is still read, and replaced with the current format on next write.
+ * Data of unsupported version cannot be decoded and must not be overwritten, see {@link #isSupported(byte[])}.
+ * All methods are stateless and can be called from any thread.
+ */
+public final class VaultUnlockCodec {
+
+    public static final NamespacedKey VAULT_DATA_LAST_UNLOCK = new NamespacedKey("tweaks", "vault_data/last_unlock");
+
+    public static final byte VERSION = 1;
+
+    private static final int HEADER_SIZE = 1;
+    private static final int RECORD_SIZE = 24;
+
+    // Legacy format, used before unlock data was stored as a byte array.
+    private static final PersistentDataType<PersistentDataContainer, HashMap<UUID, Long>> LEGACY_HASH_MAP_UUID_TO_LONG = DataType.asHashMap(DataType.UUID, DataType.LONG);
+
+    private VaultUnlockCodec() { /* STATIC ONLY */ }
+
+    /**
+     * Returns unlock data stored in specified container, or {@code null} if there is none. Data stored in the legacy format is converted.
+     */
+    public static byte @Nullable [] read(final @NotNull PersistentDataContainer container) {
+        // Reading data stored in the current format.
+        if (container.has(VAULT_DATA_LAST_UNLOCK, PersistentDataType.BYTE_ARRAY) == true)
+            return container.get(VAULT_DATA_LAST_UNLOCK, PersistentDataType.BYTE_ARRAY);
+        // Converting data stored in the legacy format.
+        if (container.has(VAULT_DATA_LAST_UNLOCK, LEGACY_HASH_MAP_UUID_TO_LONG) == true)
+            return encode(container.get(VAULT_DATA_LAST_UNLOCK, LEGACY_HASH_MAP_UUID_TO_LONG), Long.MIN_VALUE);
+        // ...
+        return null;
+    }
+
+    /**
+     * Returns {@code true} if specified container has unlock data stored in the legacy format.
+     */
+    public static boolean isLegacy(final @NotNull PersistentDataContainer container) {
+        return container.has(VAULT_DATA_LAST_UNLOCK, LEGACY_HASH_MAP_UUID_TO_LONG) == true;
+    }
+
+    /**
+     * Writes specified unlock data to specified container, replacing data stored in any format. Empty data is removed instead.
+     */
+    public static void write(final @NotNull PersistentDataContainer container, final byte @NotNull [] data) {
+        if (size(data) == 0)
+            container.remove(VAULT_DATA_LAST_UNLOCK);
+        else container.set(VAULT_DATA_LAST_UNLOCK, PersistentDataType.BYTE_ARRAY, data);
+    }
+
+    /**
+     * Encodes specified timestamps. Timestamps older than {@code expiredBefore} are skipped.
+     */
+    public static byte @NotNull [] encode(final @NotNull Map<UUID, Long> timestamps, final long expiredBefore) {
+        // Collecting and sorting entries that are not expired.
+        @SuppressWarnings("unchecked")
+        final Map.Entry<UUID, Long>[] entries = timestamps.entrySet().stream()
+                .filter(entry -> entry.getValue() >= expiredBefore)
+                .sorted(Map.Entry.comparingByKey(VaultUnlockCodec::compare))
+                .toArray(Map.Entry[]::new);
+        // Writing the header and all records.
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + entries.length * RECORD_SIZE).put(VERSION);
+        for (final Map.Entry<UUID, Long> entry : entries)
+            buffer.putLong(entry.getKey().getMostSignificantBits()).putLong(entry.getKey().getLeastSignificantBits()).putLong(entry.getValue());
+        // ...
+        return buffer.array();
+    }
+
+    /**
+     * Decodes specified unlock data. Returns an empty map in case data is of unsupported version, which should be checked with {@link #isSupported(byte[])} first.
+     */
+    public static @NotNull Map<UUID, Long> decode(final byte @NotNull [] data) {
+        final int size = size(data);
+        final Map<UUID, Long> timestamps = new HashMap<>(size * 2);
+        // Reading all records.
+        final ByteBuffer buffer = ByteBuffer.wrap(data, HEADER_SIZE, size * RECORD_SIZE);
+        for (int i = 0; i < size; i++)
+            timestamps.put(new UUID(buffer.getLong(), buffer.getLong()), buffer.getLong());
+        // ...
+        return timestamps;
+    }
+
+    /**
+     * Returns timestamp at which specified player has last unlocked the vault, or {@code 0} if they never did. Data is binary searched, not decoded.
+     */
+    public static long lookup(final byte @NotNull [] data, final @NotNull UUID uniqueId) {
+        final ByteBuffer buffer = ByteBuffer.wrap(data);
+        // Searching for the record.
+        int low = 0, high = size(data) - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int offset = HEADER_SIZE + middle * RECORD_SIZE;
+            final int comparison = compare(buffer.getLong(offset), buffer.getLong(offset + 8), uniqueId);
+            // Returning the timestamp in case record was found.
+            if (comparison == 0)
+                return buffer.getLong(offset + 16);
+            // Narrowing down the search.
+            if (comparison < 0)
+                low = middle + 1;
+            else high = middle - 1;
+        }
+        // ...
+        return 0L;
+    }
+
+    /**
+     * Returns number of records in specified unlock data, or {@code 0} if it's of unsupported version.
+     */
+    public static int size(final byte @NotNull [] data) {
+        return (isSupported(data) == true) ? (data.length - HEADER_SIZE) / RECORD_SIZE : 0;
+    }
+
+    /**
+     * Returns {@code true} if specified unlock data is of supported version and can be decoded.
+     */
+    public static boolean isSupported(final byte @NotNull [] data) {
+        return data.length >= HEADER_SIZE && data[0] == VERSION && (data.length - HEADER_SIZE) % RECORD_SIZE == 0;
+    }
+
+    /* HELPER METHODS */
+
+    // Compares unique ids the same way records are sorted.
+    private static int compare(final @NotNull UUID first, final @NotNull UUID second) {
+        return compare(first.getMostSignificantBits(), first.getLeastSignificantBits(), second);
+    }
+
+    // Compares unique id given by its bits to specified unique id.
+    private static int compare(final long mostSigBits, final long leastSigBits, final @NotNull UUID other) {
+        final int comparison = Long.compare(mostSigBits, other.getMostSignificantBits());
+        return (comparison != 0) ? comparison : Long.compare(leastSigBits, other.getLeastSignificantBits());
+    }
+
+}